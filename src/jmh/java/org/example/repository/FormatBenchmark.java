@@ -0,0 +1,122 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.validation.NotaValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reading and writing a whole grades store in every storage format: xml is NotaXMLRepository,
+ * text is NotaFileRepository and binary is NotaBinaryRepository; the -gz formats keep the file GZIP compressed.
+ * load opens the store and reads every grade; save writes every grade into an empty store.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FormatBenchmark {
+    private static final String EMPTY_XML =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>";
+
+    @Param({"xml", "xml-gz", "text", "text-gz", "binary"})
+    public String format;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private Path directory;
+    private String loaded;
+    private String saved;
+    private List<Nota> note;
+
+    private CRUDRepository<Pair<String, String>, Nota> open(String file) {
+        switch (format) {
+            case "xml":
+            case "xml-gz":
+                return new NotaXMLRepository(new NotaValidator(), file);
+            case "text":
+            case "text-gz":
+                return new NotaFileRepository(new NotaValidator(), file);
+            default:
+                return new NotaBinaryRepository(new NotaValidator(), file);
+        }
+    }
+
+    private void create(String file) throws IOException {
+        new File(file).delete();
+        new File(file + ".wal").delete();
+        if (format.startsWith("xml")) {
+            try (Writer writer = format.endsWith("gz")
+                    ? new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)
+                    : new FileWriter(file)) {
+                writer.write(EMPTY_XML);
+            }
+        }
+    }
+
+    private void write(String file) throws IOException {
+        CRUDRepository<Pair<String, String>, Nota> repository = open(file);
+        repository.saveAll(note);
+        if (repository instanceof AbstractXMLRepository) {
+            ((AbstractXMLRepository<?, ?>) repository).checkpoint();
+        }
+        repository.close();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("format-benchmark");
+        String extension = format.endsWith("gz") ? ".gz" : "";
+        loaded = directory.resolve("note" + extension).toString();
+        saved = directory.resolve("note-saved" + extension).toString();
+        note = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            note.add(new Nota(new Pair<>("s" + i / 10, "t" + i % 10), 1 + i % 10, 1 + i % 14,
+                    "feedback pentru tema " + i % 10));
+        }
+        create(loaded);
+        write(loaded);
+    }
+
+    @Setup(Level.Iteration)
+    public void emptySaved() throws IOException {
+        create(saved);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        File[] files = directory.toFile().listFiles();
+        Arrays.stream(files == null ? new File[0] : files).forEach(File::delete);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void load(Blackhole blackhole) {
+        for (Nota nota : open(loaded).findAll()) {
+            blackhole.consume(nota);
+        }
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        write(saved);
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.validation.StudentValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Basic operations of the student repositories, for every storage backend and dataset size:
+ * xml is StudentXMLRepository, text is StudentFileRepository, text-log is the same in log-structured mode
+ * and text-sharded splits the students between SHARDS text files.
+ * The changes are measured in batches of BATCH, flushed at the end of the batch so that the writes
+ * are part of the measurement, and undone after every iteration.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmark {
+    private static final int BATCH = 1_000;
+    private static final int SHARDS = 8;
+    private static final String EMPTY_XML =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>";
+
+    @Param({"xml", "text", "text-log", "text-sharded"})
+    public String backend;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private Path directory;
+    private CRUDRepository<String, Student> repository;
+    private String[] ids;
+    private List<Student> added;
+    private List<Student> changed;
+    private List<Student> victims;
+    private int next;
+
+    private static Student student(String id, int i) {
+        return new Student(id, "student " + i, 211 + i % 20);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("repository-benchmark");
+        String file = directory.resolve("studenti").toString();
+        List<Student> studenti = new ArrayList<>();
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = "s" + i;
+            studenti.add(student(ids[i], i));
+        }
+
+        if (backend.equals("xml")) {
+            try (FileWriter fileWriter = new FileWriter(file)) {
+                fileWriter.write(EMPTY_XML);
+            }
+            StudentXMLRepository xml = new StudentXMLRepository(new StudentValidator(), file);
+            xml.saveAll(studenti);
+            xml.checkpoint();
+            repository = xml;
+        } else if (backend.equals("text-sharded")) {
+            repository = new ShardedRepository<>(SHARDS, shard -> new StudentFileRepository(new StudentValidator(),
+                    ShardedRepository.shardFile(file + ".txt", shard)));
+            repository.saveAll(studenti);
+        } else {
+            StudentFileRepository text = new StudentFileRepository(new StudentValidator(), file);
+            text.setLogStructured(backend.equals("text-log"));
+            text.saveAll(studenti);
+            repository = text;
+        }
+        repository.flush();
+
+        added = new ArrayList<>();
+        changed = new ArrayList<>();
+        victims = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            int row = (int) ((long) i * size / BATCH);
+            added.add(student("x" + i, i));
+            changed.add(new Student(ids[row], "student " + row + " nou", 211 + (row + 1) % 20));
+            victims.add(studenti.get(row));
+        }
+    }
+
+    /**
+     * Puts back the students removed by delete and removes the ones added by save.
+     */
+    @TearDown(Level.Iteration)
+    public void restore() {
+        List<String> addedIds = new ArrayList<>();
+        added.forEach(student -> addedIds.add(student.getID()));
+        repository.deleteAll(addedIds);
+        repository.saveAll(victims);
+        repository.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        File[] files = directory.toFile().listFiles();
+        Arrays.stream(files == null ? new File[0] : files).forEach(File::delete);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Student findOne() {
+        next = next + 1 == size ? 0 : next + 1;
+        return repository.findOne(ids[next]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void findAll(Blackhole blackhole) {
+        for (Student student : repository.findAll()) {
+            blackhole.consume(student);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(BATCH)
+    public void save() throws Exception {
+        for (Student student : added) {
+            repository.save(student);
+        }
+        repository.flush();
+    }
+
+    /**
+     * A single update written out before the next one, so that its rewrite is not shared with other changes.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void updateOne() {
+        next = next + 1 == BATCH ? 0 : next + 1;
+        repository.update(changed.get(next));
+        repository.flush();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(BATCH)
+    public void update() {
+        for (Student student : changed) {
+            repository.update(student);
+        }
+        repository.flush();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(BATCH)
+    public void delete() {
+        for (Student student : victims) {
+            repository.delete(student.getID());
+        }
+        repository.flush();
+    }
+}
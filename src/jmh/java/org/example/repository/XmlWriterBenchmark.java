@@ -0,0 +1,83 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.validation.NotaValidator;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the StAX writer of AbstractXMLRepository with writing the same entities through a DOM document
+ * and an indenting Transformer, which holds every entity twice in memory; the DOM output goes to a file
+ * of its own, since it is not a snapshot the repository could read back with its log.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XmlWriterBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private File file;
+    private File domFile;
+    private NotaXMLRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("note-benchmark", ".xml");
+        try (FileWriter fileWriter = new FileWriter(file)) {
+            fileWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>");
+        }
+        domFile = File.createTempFile("note-benchmark-dom", ".xml");
+        repository = new NotaXMLRepository(new NotaValidator(), file.getPath());
+        repository.findAll();
+        for (int i = 0; i < size; i++) {
+            Nota nota = new Nota(new Pair<>("s" + (i / 20), "t" + (i % 20)), 5 + i % 6, 1 + i % 14, "feedback " + i % 7);
+            repository.entities.put(nota.getID(), nota);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        domFile.delete();
+        new File(file.getPath() + ".wal").delete();
+        new File(file.getPath() + StoreLock.EXTENSION).delete();
+    }
+
+    @Benchmark
+    public void stax() {
+        repository.writeToXmlFile();
+    }
+
+    @Benchmark
+    public void dom() throws Exception {
+        Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element root = XMLdocument.createElement("Entitati");
+        XMLdocument.appendChild(root);
+        repository.entities.values().forEach(nota -> root.appendChild(repository.getElementFromEntity(nota, XMLdocument)));
+
+        Transformer XMLtransformer = TransformerFactory.newInstance().newTransformer();
+        XMLtransformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        try (OutputStream out = new FileOutputStream(domFile)) {
+            XMLtransformer.transform(new DOMSource(XMLdocument), new StreamResult(out));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.service;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.domain.Student;
+import org.example.domain.Tema;
+import org.example.repository.NotaXMLRepository;
+import org.example.repository.StudentXMLRepository;
+import org.example.repository.TemaXMLRepository;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.example.validation.TemaValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service.saveNota and Service.createStudentFile over XML repositories holding the given number of grades,
+ * ten per student. saveNota is measured in batches of BATCH grades, undone after every iteration.
+ * createStudentFile writes its report to the working directory, under REPORT_NAME.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServiceBenchmark {
+    private static final int TEME = 10;
+    private static final int BATCH = 100;
+    private static final String EXTRA_TEMA = "extra";
+    private static final String REPORT_NAME = "jmh_report";
+    private static final String EMPTY_XML =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>";
+
+    @Param({"1000", "10000", "100000"})
+    public int grades;
+
+    private Path directory;
+    private NotaXMLRepository note;
+    private Service service;
+    private int studenti;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("service-benchmark");
+        String[] files = {"studenti.xml", "teme.xml", "note.xml"};
+        for (int i = 0; i < files.length; i++) {
+            files[i] = directory.resolve(files[i]).toString();
+            try (FileWriter fileWriter = new FileWriter(files[i])) {
+                fileWriter.write(EMPTY_XML);
+            }
+        }
+
+        StudentXMLRepository studentRepository = new StudentXMLRepository(new StudentValidator(), files[0]);
+        TemaXMLRepository temaRepository = new TemaXMLRepository(new TemaValidator(), files[1]);
+        note = new NotaXMLRepository(new NotaValidator(), files[2]);
+        service = new Service(studentRepository, temaRepository, note);
+
+        studenti = grades / TEME;
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < studenti; i++) {
+            students.add(new Student("s" + i, REPORT_NAME, 211 + i % 20));
+        }
+        List<Tema> teme = new ArrayList<>();
+        for (int i = 0; i < TEME; i++) {
+            teme.add(new Tema("t" + i, "tema " + i, 14, 1));
+        }
+        teme.add(new Tema(EXTRA_TEMA, "tema suplimentara", 14, 1));
+        List<Nota> dataset = new ArrayList<>();
+        for (int i = 0; i < grades; i++) {
+            dataset.add(new Nota(new Pair<>("s" + i / TEME, "t" + i % TEME), 5 + i % 6, 14, "feedback " + i % 7));
+        }
+
+        service.saveStudents(students);
+        service.saveTeme(teme);
+        service.saveNote(dataset);
+        studentRepository.checkpoint();
+        temaRepository.checkpoint();
+        note.checkpoint();
+        studentRepository.flush();
+        temaRepository.flush();
+        note.flush();
+    }
+
+    /**
+     * Removes the grades given for the extra assignment by saveNota.
+     */
+    @TearDown(Level.Iteration)
+    public void restore() {
+        List<Pair<String, String>> ids = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            ids.add(new Pair<>("s" + i, EXTRA_TEMA));
+        }
+        note.deleteAll(ids);
+        note.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.close();
+        new File(REPORT_NAME + ".txt").delete();
+        File[] files = directory.toFile().listFiles();
+        Arrays.stream(files == null ? new File[0] : files).forEach(File::delete);
+        Files.delete(directory);
+    }
+
+    /**
+     * Grades the first BATCH students for the extra assignment, one saveNota at a time.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(BATCH)
+    public void saveNota() throws Exception {
+        for (int i = 0; i < BATCH; i++) {
+            service.saveNota("s" + i, EXTRA_TEMA, 9, 14, "ok");
+        }
+        note.flush();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void createStudentFile() {
+        next = next + 1 == studenti ? 0 : next + 1;
+        service.createStudentFile("s" + next, "t0");
+    }
+}
@@ -1,24 +1,29 @@
 package org.example;
 
-import org.example.domain.*;
 import org.example.console.UI;
 import org.example.repository.*;
 import org.example.service.*;
-import org.example.validation.*;
 
 public class Main {
     public static void main(String[] args) {
-        Validator<Student> studentValidator = new StudentValidator();
-        Validator<Tema> temaValidator = new TemaValidator();
-        Validator<Nota> notaValidator = new NotaValidator();
+        RepositoryContext context = RepositoryContext.xml("studenti.xml", "teme.xml", "note.xml");
+        StudentXMLRepository fileRepository1 = context.get(RepositoryContext.STUDENTI);
+        TemaXMLRepository fileRepository2 = context.get(RepositoryContext.TEME);
+        NotaXMLRepository fileRepository3 = context.get(RepositoryContext.NOTE);
 
-        StudentXMLRepository fileRepository1 = new StudentXMLRepository(studentValidator, "studenti.xml");
-        TemaXMLRepository fileRepository2 = new TemaXMLRepository(temaValidator, "teme.xml");
-        NotaXMLRepository fileRepository3 = new NotaXMLRepository(notaValidator, "note.xml");
+        // the files are shared with other tools: read their changes as soon as they are made
+        fileRepository1.setWatched(true);
+        fileRepository2.setWatched(true);
+        fileRepository3.setWatched(true);
 
-        Service service = new Service(fileRepository1, fileRepository2, fileRepository3);
+        fileRepository1.prefetch();
+        fileRepository2.prefetch();
+        fileRepository3.prefetch();
+
+        Service service = new Service(context);
         UI consola = new UI(service);
         consola.run();
+        service.close();
 
         //PENTRU GUI
         // de avut un check: daca profesorul introduce sau nu saptamana la timp
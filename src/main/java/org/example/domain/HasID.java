@@ -1,6 +1,6 @@
-package org.example.domain;
-
-public interface HasID<ID> {
-    ID getID();
-    void setID(ID id);
-}
+package org.example.domain;
+
+public interface HasID<ID> {
+    ID getID();
+    void setID(ID id);
+}
@@ -1,34 +1,49 @@
-package org.example.domain;
-
-import java.util.Objects;
-
-public class Pair<E, F> {
-    private E object1;
-    private F object2;
-
-    public Pair(E object1, F object2) {
-        this.object1 = object1;
-        this.object2 = object2;
-    }
-
-    public E getObject1() {
-        return object1;
-    }
-
-    public F getObject2() {
-        return object2;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Pair<E, F> pair = (Pair<E, F>) o;
-        return Objects.equals(object1, pair.object1) && Objects.equals(object2, pair.object2);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(object1, object2);
-    }
-}
+package org.example.domain;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Pairs are ordered by their first object, then by their second one, nulls first;
+ * comparing pairs whose objects are not Comparable throws a ClassCastException.
+ */
+public class Pair<E, F> implements Comparable<Pair<E, F>> {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Object> ORDER = Comparator.nullsFirst((Comparator) Comparator.naturalOrder());
+
+    private E object1;
+    private F object2;
+
+    public Pair(E object1, F object2) {
+        this.object1 = object1;
+        this.object2 = object2;
+    }
+
+    public E getObject1() {
+        return object1;
+    }
+
+    public F getObject2() {
+        return object2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Pair<E, F> pair = (Pair<E, F>) o;
+        return Objects.equals(object1, pair.object1) && Objects.equals(object2, pair.object2);
+    }
+
+    @Override
+    public int hashCode() {
+        // same value as Objects.hash(object1, object2), without the varargs array
+        return 31 * (31 + Objects.hashCode(object1)) + Objects.hashCode(object2);
+    }
+
+    @Override
+    public int compareTo(Pair<E, F> other) {
+        int result = ORDER.compare(object1, other.object1);
+        return result != 0 ? result : ORDER.compare(object2, other.object2);
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only moves while its registry is enabled.
+ */
+public class Counter {
+    private final MetricsRegistry registry;
+    private final LongAdder value = new LongAdder();
+
+    Counter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long amount) {
+        if (registry.isEnabled()) {
+            value.add(amount);
+        }
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    void reset() {
+        value.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "numar=" + get();
+    }
+}
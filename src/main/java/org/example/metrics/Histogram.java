@@ -0,0 +1,135 @@
+package org.example.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values in log-linear buckets: every power of two is split into
+ * SUB_BUCKETS equal buckets, so a percentile is off by at most 1/SUB_BUCKETS of its value
+ * whatever the magnitude. Recording is lock-free and does not allocate.
+ * Values above 2^MAX_EXPONENT land in the last bucket.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final MetricsRegistry registry;
+    private final String unit;
+    private final double scale;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param unit - unit the values are reported in
+     * @param scale - factor converting a recorded value to the reported unit
+     */
+    Histogram(MetricsRegistry registry, String unit, double scale) {
+        this.registry = registry;
+        this.unit = unit;
+        this.scale = scale;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return the middle of the values falling into the bucket
+     */
+    static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + ((1L << shift) >> 1);
+    }
+
+    public void record(long value) {
+        if (registry.isEnabled()) {
+            buckets.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+    }
+
+    /**
+     * Records the nanoseconds elapsed since start.
+     * @param start - a value returned by MetricsRegistry.start; nothing is recorded for MetricsRegistry.DISABLED
+     */
+    public void recordSince(long start) {
+        if (start != MetricsRegistry.DISABLED) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() * scale / n;
+    }
+
+    public double getMax() {
+        return max.get() * scale;
+    }
+
+    /**
+     * @param quantile - between 0 and 1
+     * @return the value below which the given share of the recorded values fall, in the reported unit
+     */
+    public double getPercentile(double quantile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(valueOf(i), max.get()) * scale;
+            }
+        }
+        return getMax();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "numar=%d, medie=%.1f %s, p50=%.1f, p90=%.1f, p99=%.1f, p99.9=%.1f, maxim=%.1f",
+                getCount(), getMean(), unit, getPercentile(0.5), getPercentile(0.9), getPercentile(0.99),
+                getPercentile(0.999), getMax());
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named counters and histograms. While the registry is disabled, which is the default unless the
+ * metrics.enabled system property is set, recording costs a single volatile read and start does not
+ * even read the clock.
+ */
+public class MetricsRegistry {
+    /**
+     * Returned by start while the registry is disabled.
+     */
+    public static final long DISABLED = Long.MIN_VALUE;
+
+    private static volatile MetricsRegistry shared = new MetricsRegistry(Boolean.getBoolean("metrics.enabled"));
+
+    private volatile boolean enabled;
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the registry the repositories and the service record to unless given another one
+     */
+    public static MetricsRegistry shared() { return shared; }
+
+    public static void setShared(MetricsRegistry registry) { shared = registry; }
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    /**
+     * @return the current time for Histogram.recordSince, or DISABLED
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter(this));
+    }
+
+    /**
+     * @return a histogram of durations recorded in nanoseconds and reported in microseconds
+     */
+    public Histogram latency(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(this, "us", 1e-3));
+    }
+
+    /**
+     * @return a histogram of values reported as they were recorded, in the given unit
+     */
+    public Histogram histogram(String name, String unit) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(this, unit, 1));
+    }
+
+    /**
+     * Zeroes every metric; the metrics stay registered.
+     */
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * @return one line per metric that recorded something, sorted by name
+     */
+    public String report() {
+        Map<String, Object> metrics = new TreeMap<>();
+        counters.forEach((name, counter) -> {
+            if (counter.get() != 0) {
+                metrics.put(name, counter);
+            }
+        });
+        histograms.forEach((name, histogram) -> {
+            if (histogram.getCount() != 0) {
+                metrics.put(name, histogram);
+            }
+        });
+
+        StringBuilder report = new StringBuilder();
+        metrics.forEach((name, metric) -> report.append(name).append(": ").append(metric).append('\n'));
+        return report.toString();
+    }
+
+    /**
+     * Appends the report, preceded by the current time, to the given file.
+     */
+    public void writeTo(Path file) throws IOException {
+        try (BufferedWriter bw = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            bw.write("# " + LocalDateTime.now() + "\n");
+            bw.write(report());
+            bw.write("\n");
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package org.example.repository;
+
+import org.example.domain.HasID;
+import org.example.validation.AlreadyExistsException;
+import org.example.validation.ValidationException;
+import org.example.validation.Validator;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Repository stored as a log of length-prefixed binary records.
+ * The file starts with a header: MAGIC, FORMAT_VERSION and the kind of entities it holds.
+ * Every record is laid out as: operation (1 byte), payload length (int), payload, then the CRC32C
+ * of everything before it (int). A record either puts or deletes an entity and a later record for an ID
+ * overrides the earlier ones; the file is compacted in the background once the share of superseded
+ * records reaches the compaction threshold.
+ * Loading skips the corrupted records; the torn end of an interrupted append is cut off so that later appends
+ * stay readable. The file is read and written holding the lock of the store.
+ * Strings are written as their UTF-8 length followed by their bytes, so they may contain any character.
+ */
+public abstract class AbstractBinaryRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID, E> {
+    public static final int MAGIC = 0x53535642;
+    public static final short FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 4 + 2 + 1;
+
+    private static final byte PUT = 'P';
+    private static final byte DELETE = 'D';
+    private static final int RECORD_OVERHEAD = 1 + 4 + 4;
+    private static final int MAX_PAYLOAD = 1 << 24;
+
+    protected final String filename;
+    private final StoreLock storeLock;
+    protected final WriteBehindQueue<byte[]> queue = new WriteBehindQueue<>(this, this::persist, record -> record.length);
+    protected final SnapshotScheduler snapshots = new SnapshotScheduler(this::writeToFileAll);
+
+    private final byte kind;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private volatile boolean loaded;
+    private int recordCount;
+    private double compactionThreshold = AbstractFileRepository.DEFAULT_COMPACTION_THRESHOLD;
+
+    /**
+     * @param kind - identifies the entities of the repository in the header of the file
+     */
+    public AbstractBinaryRepository(Validator<E> validator, String filename, char kind) {
+        super(validator);
+        this.filename = filename;
+        this.kind = (byte) kind;
+        this.storeLock = StoreLock.of(filename);
+    }
+
+    /**
+     * Writes the fields of the entity; the record around them is written by the repository.
+     */
+    protected abstract void writeEntity(E entity, DataOutput out) throws IOException;
+
+    /**
+     * Reads back the fields written by writeEntity.
+     * @param in - positioned on the payload of the record
+     */
+    protected abstract E readEntity(ByteBuffer in);
+
+    protected static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return intern(value);
+    }
+
+    public FlushPolicy getFlushPolicy() { return queue.getPolicy(); }
+
+    public void setFlushPolicy(FlushPolicy flushPolicy) { queue.setPolicy(flushPolicy); }
+
+    public double getCompactionThreshold() { return compactionThreshold; }
+
+    /**
+     * @param compactionThreshold - share of superseded records, between 0 and 1, that triggers a compaction
+     */
+    public void setCompactionThreshold(double compactionThreshold) {
+        if (compactionThreshold <= 0 || compactionThreshold > 1) {
+            throw new IllegalArgumentException("Pragul de compactare trebuie sa fie intre 0 si 1! \n");
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * @return the share of records in the file that no longer describe a live entity
+     */
+    public synchronized double getGarbageRatio() {
+        return recordCount == 0 ? 0 : (double) (recordCount - entities.size()) / recordCount;
+    }
+
+    /**
+     * Reads the file once, before the first operation.
+     * @throws IllegalStateException if the file is not a binary store of this kind of entities
+     */
+    @Override
+    protected void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    loadFromFile();
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bytes that do not form a valid record are passed over one at a time until the next valid record.
+     * If a valid record follows them they are reported and left in place; if they reach the end of the file
+     * they are the torn end of an append and are cut off, so that later appends stay readable.
+     * The file is read holding the lock of the store, so an append still being written is never cut off.
+     */
+    @SuppressWarnings("try")
+    private void loadFromFile() {
+        long start = metrics.start();
+
+        try (StoreLock.Held held = storeLock.acquire();
+             FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                if (size > 0) {
+                    metrics.errors.increment();
+                    System.out.println("Antet incomplet in " + filename + ", ignorat! \n");
+                    truncate(0);
+                }
+                metrics.load.recordSince(start);
+                return;
+            }
+
+            ByteBuffer buffer = fill(channel, ByteBuffer.allocate(1 << 16).flip(), HEADER_SIZE);
+            checkHeader(buffer);
+            long end = HEADER_SIZE;
+            long damagedFrom = -1;
+
+            while (end < size) {
+                long available = size - end;
+                if (available >= RECORD_OVERHEAD) {
+                    if (buffer.remaining() < 5) {
+                        buffer = fill(channel, buffer, 5);
+                    }
+                    byte operation = buffer.get(buffer.position());
+                    int length = buffer.getInt(buffer.position() + 1);
+                    if ((operation == PUT || operation == DELETE) && length >= 0 && length <= MAX_PAYLOAD
+                            && length <= available - RECORD_OVERHEAD) {
+                        if (buffer.remaining() < RECORD_OVERHEAD + length) {
+                            buffer = fill(channel, buffer, RECORD_OVERHEAD + length);
+                        }
+                        if (applyRecord(buffer, length)) {
+                            if (damagedFrom >= 0) {
+                                metrics.errors.increment();
+                                System.out.println("Inregistrari corupte in " + filename + " intre pozitiile "
+                                        + damagedFrom + " si " + end + ", ignorate! \n");
+                                damagedFrom = -1;
+                            }
+                            end += RECORD_OVERHEAD + length;
+                            continue;
+                        }
+                    }
+                }
+
+                if (damagedFrom < 0) {
+                    damagedFrom = end;
+                }
+                if (!buffer.hasRemaining()) {
+                    buffer = fill(channel, buffer, 1);
+                }
+                buffer.position(buffer.position() + 1);
+                end++;
+            }
+
+            if (damagedFrom >= 0) {
+                metrics.errors.increment();
+                System.out.println("Inregistrari incomplete sau corupte in " + filename + " de la pozitia "
+                        + damagedFrom + ", ignorate! \n");
+                truncate(damagedFrom);
+            }
+        } catch (NoSuchFileException nsfe) {
+            return;
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+            return;
+        }
+        metrics.load.recordSince(start);
+    }
+
+    private void truncate(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private void checkHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Fisierul " + filename + " nu este un depozit binar! \n");
+        }
+        short version = buffer.getShort();
+        if (version > FORMAT_VERSION) {
+            throw new IllegalStateException("Versiune necunoscuta a fisierului " + filename + ": " + version + "! \n");
+        }
+        if (buffer.get() != kind) {
+            throw new IllegalStateException("Fisierul " + filename + " contine alte entitati! \n");
+        }
+    }
+
+    /**
+     * Keeps the bytes not read yet and reads more of the file after them, growing the buffer if needed.
+     * @return the buffer, holding at least needed bytes, or null at the end of the file
+     */
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.capacity() < needed) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(needed) << 1).put(buffer);
+        } else {
+            buffer.compact();
+        }
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+        }
+        buffer.flip();
+        return buffer.remaining() >= Math.max(needed, 1) ? buffer : null;
+    }
+
+    /**
+     * Checks the record the buffer is positioned on and applies it, leaving the buffer after it.
+     * @return false if the record is corrupted
+     */
+    private boolean applyRecord(ByteBuffer buffer, int length) {
+        int start = buffer.position();
+        int crcOffset = start + 5 + length;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, 5 + length);
+        if ((int) crc.getValue() != buffer.getInt(crcOffset)) {
+            return false;
+        }
+
+        byte operation = buffer.get(start);
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + 5).limit(crcOffset);
+        try {
+            E entity = readEntity(payload);
+            if (operation == DELETE) {
+                removeEntity(entity.getID());
+            } else if (operation == PUT) {
+                putEntity(entity);
+            } else {
+                return false;
+            }
+        } catch (RuntimeException re) {
+            return false;
+        }
+
+        recordCount++;
+        buffer.position(crcOffset + 4);
+        return true;
+    }
+
+    /**
+     * Called while holding the lock, which guards the reused record buffer.
+     */
+    private byte[] encode(byte operation, E entity) {
+        recordBytes.reset();
+        try {
+            recordOut.writeByte(operation);
+            recordOut.writeInt(0);
+            writeEntity(entity, recordOut);
+            recordOut.writeInt(0);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+
+        byte[] record = recordBytes.toByteArray();
+        ByteBuffer view = ByteBuffer.wrap(record);
+        view.putInt(1, record.length - RECORD_OVERHEAD);
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, record.length - 4);
+        view.putInt(record.length - 4, (int) crc.getValue());
+        return record;
+    }
+
+    private static ByteBuffer header(byte kind) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(FORMAT_VERSION).put(kind).flip();
+    }
+
+    @SuppressWarnings("try")
+    private void persist(List<byte[]> records, boolean rewrite, boolean sync) throws IOException {
+        if (rewrite) {
+            snapshots.schedule();
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        long start = metrics.start();
+        long bytes = 0;
+        try (StoreLock.Held held = storeLock.acquire();
+             FileChannel channel = FileChannel.open(Paths.get(filename),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            if (channel.size() == 0) {
+                out.write(header(kind).array());
+                bytes += HEADER_SIZE;
+            }
+            for (byte[] record : records) {
+                out.write(record);
+                bytes += record.length;
+            }
+            out.flush();
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            throw ioe;
+        }
+        recordCount += records.size();
+        metrics.persist.recordSince(start);
+        metrics.persistedBytes.record(bytes);
+    }
+
+    private void appendRecords(byte operation, List<E> changed) {
+        List<byte[]> records = new ArrayList<>(changed.size());
+        for (E entity : changed) {
+            records.add(encode(operation, entity));
+        }
+        queue.appendAll(records);
+    }
+
+    private void scheduleCompaction() {
+        if (recordCount >= AbstractFileRepository.MIN_COMPACTION_RECORDS && getGarbageRatio() >= compactionThreshold) {
+            snapshots.schedule();
+        }
+    }
+
+    /**
+     * Rewrites the file so that it holds exactly one record per live entity, and waits for it.
+     */
+    public void compact() {
+        ensureLoaded();
+        snapshots.schedule();
+        snapshots.await();
+    }
+
+    /**
+     * Rewrites the file from a copy of the entities; runs on the snapshot thread.
+     * The records are written to a temporary file without blocking mutations; records appended
+     * in the meantime are copied over before the temporary file atomically replaces the original.
+     */
+    @SuppressWarnings("try")
+    private void writeToFileAll() {
+        long start = metrics.start();
+        List<byte[]> records = new ArrayList<>();
+        long snapshotEnd;
+        int snapshotRecords;
+
+        synchronized (this) {
+            queue.flush();
+            for (E entity : entities.values()) {
+                records.add(encode(PUT, entity));
+            }
+            snapshotEnd = new File(filename).length();
+            snapshotRecords = recordCount;
+        }
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path compacted = StoreLock.temporaryFile(target);
+        try {
+            try (FileChannel destination = FileChannel.open(compacted,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(destination), 1 << 16);
+                out.write(header(kind).array());
+                for (byte[] record : records) {
+                    out.write(record);
+                }
+                out.flush();
+
+                synchronized (this) {
+                    try (StoreLock.Held held = storeLock.acquire()) {
+                        if (Files.exists(target)) {
+                            try (FileChannel source = FileChannel.open(target, StandardOpenOption.READ)) {
+                                long position = Math.max(snapshotEnd, HEADER_SIZE);
+                                while (position < source.size()) {
+                                    position += source.transferTo(position, source.size() - position, destination);
+                                }
+                            }
+                        }
+                        destination.force(true);
+                        Files.move(compacted, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        recordCount = records.size() + recordCount - snapshotRecords;
+                    }
+                }
+            }
+            metrics.snapshot.recordSince(start);
+            metrics.snapshotBytes.record(new File(filename).length());
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+        }
+    }
+
+    @Override
+    protected synchronized E doSave(E entity) throws ValidationException, AlreadyExistsException {
+        E result = super.doSave(entity);
+        queue.append(encode(PUT, entity));
+
+        return result;
+    }
+
+    @Override
+    protected synchronized E doDelete(ID id) {
+        E result = super.doDelete(id);
+        if (result != null) {
+            queue.append(encode(DELETE, result));
+            scheduleCompaction();
+        }
+
+        return result;
+    }
+
+    @Override
+    protected synchronized E doUpdate(E newEntity) {
+        E result = super.doUpdate(newEntity);
+        if (result != null) {
+            queue.append(encode(PUT, newEntity));
+            scheduleCompaction();
+        }
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<E> doSaveAll(Iterable<E> newEntities) {
+        BulkResult<E> result = super.doSaveAll(newEntities);
+        appendRecords(PUT, result.getSucceeded());
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<ID> doDeleteAll(Iterable<ID> ids) {
+        List<E> removed = new ArrayList<>();
+        BulkResult<ID> result = deleteAll(ids, removed);
+        appendRecords(DELETE, removed);
+        scheduleCompaction();
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<E> doUpdateAll(Iterable<E> newEntities) {
+        BulkResult<E> result = super.doUpdateAll(newEntities);
+        appendRecords(PUT, result.getSucceeded());
+        scheduleCompaction();
+
+        return result;
+    }
+
+    /**
+     * Writes the queued changes and waits for the requested compactions.
+     */
+    @Override
+    public void flush() {
+        queue.flush();
+        snapshots.await();
+    }
+}
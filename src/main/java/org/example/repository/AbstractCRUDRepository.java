@@ -1,63 +1,428 @@
-package org.example.repository;
-
-import org.example.domain.*;
-import org.example.validation.*;
-
-import java.util.HashMap;
-import java.util.Map;
-
-public abstract class AbstractCRUDRepository<ID, E extends HasID<ID>> implements CRUDRepository<ID, E> {
-    Map<ID, E> entities;
-    Validator<E> validator;
-
-    public AbstractCRUDRepository(Validator validator) {
-        entities = new HashMap<ID, E>();
-        this.validator = validator;
-    }
-
-    @Override
-    public E findOne(ID id) {
-        if (id == null) {
-            throw new IllegalArgumentException("ID-ul nu poate fi null! \n");
-        } else {
-            return entities.get(id);
-        }
-    }
-
-    @Override
-    public Iterable<E> findAll() {
-        return entities.values();
-    }
-
-    @Override
-    public E save(E entity) throws ValidationException, AlreadyExistsException {
-        validator.validate(entity);
-
-        E oldEntity = entities.putIfAbsent(entity.getID(), entity);
-
-        if (oldEntity != null)
-            throw new AlreadyExistsException("Entity already exists");
-
-        return entity;
-    }
-
-    @Override
-    public E delete(ID id) {
-        if (id == null) {
-            throw new IllegalArgumentException("ID-ul nu poate fi nul! \n");
-        } else {
-            return entities.remove(id);
-        }
-    }
-
-    @Override
-    public E update(E entity) {
-        try {
-            validator.validate(entity);
-            return entities.replace(entity.getID(), entity);
-        } catch (ValidationException ve) {
-            System.out.println("Entitatea nu este valida! \n");
-            return null;
-        }
-    }
-}
+package org.example.repository;
+
+import org.example.domain.*;
+import org.example.metrics.MetricsRegistry;
+import org.example.validation.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Safe to share between threads: reads go straight to a ConcurrentHashMap without locking,
+ * while every change holds the lock of the repository, so changes and the persistence of
+ * the subclasses never interleave.
+ * Every public operation is timed here and carried out by its protected do method, which
+ * is what the subclasses override.
+ * Repositories backed by storage load it on first use, through ensureLoaded, so opening one is instant.
+ */
+public abstract class AbstractCRUDRepository<ID, E extends HasID<ID>> implements CRUDRepository<ID, E> {
+    private static final ExecutorService PREFETCH = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "repository-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    Map<ID, E> entities;
+    Validator<E> validator;
+    private final List<EntityListener<E>> listeners = new CopyOnWriteArrayList<>();
+    // orders the changes of the entities with the registration of listeners, without the lock of the repository
+    private final Object listenerLock = new Object();
+    private volatile StringPool stringPool = StringPool.shared();
+    volatile RepositoryMetrics metrics = new RepositoryMetrics(MetricsRegistry.shared(), getClass().getSimpleName());
+
+    public AbstractCRUDRepository(Validator validator) {
+        entities = new ConcurrentHashMap<ID, E>();
+        this.validator = validator;
+    }
+
+    public StringPool getStringPool() { return stringPool; }
+
+    /**
+     * @param stringPool - pool deduplicating the strings of the entities read by the subclasses
+     */
+    public void setStringPool(StringPool stringPool) { this.stringPool = stringPool; }
+
+    public MetricsRegistry getMetricsRegistry() { return metrics.registry; }
+
+    /**
+     * @param registry - registry the operations of the repository are recorded to,
+     *                 under the simple name of its class
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        metrics = new RepositoryMetrics(registry, getClass().getSimpleName());
+    }
+
+    /**
+     * Used by the subclasses for every string they read from storage.
+     */
+    protected String intern(String value) {
+        return stringPool.intern(value);
+    }
+
+    /**
+     * Brings the entities in from storage; called first by every public operation.
+     * Does nothing here, the subclasses backed by storage load on the first call.
+     */
+    protected void ensureLoaded() {
+    }
+
+    /**
+     * Loads the repository now, unless it is already loaded.
+     */
+    public void load() {
+        ensureLoaded();
+    }
+
+    /**
+     * Starts loading the repository on a shared background thread, so that its first operation
+     * does not have to wait for the load.
+     * @return done once the repository is loaded
+     */
+    public Future<?> prefetch() {
+        return PREFETCH.submit(this::ensureLoaded);
+    }
+
+    /**
+     * Registers a listener for every later change; it is first told about the entities already present.
+     * Does not wait for a load in progress: the listener is told about the entities loaded so far
+     * and then about the rest as they are loaded.
+     */
+    public void addListener(EntityListener<E> listener) {
+        synchronized (listenerLock) {
+            listeners.add(listener);
+            entities.values().forEach(entity -> listener.entityChanged(null, entity));
+        }
+    }
+
+    public void removeListener(EntityListener<E> listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(E oldEntity, E newEntity) {
+        for (EntityListener<E> listener : listeners) {
+            listener.entityChanged(oldEntity, newEntity);
+        }
+    }
+
+    /**
+     * Adds or replaces an entity; every change of the entities map goes through
+     * putEntity, removeEntity or clearEntities so that the listeners see it.
+     * @return the replaced entity or null
+     */
+    protected synchronized E putEntity(E entity) {
+        synchronized (listenerLock) {
+            E oldEntity = entities.put(entity.getID(), entity);
+            notifyListeners(oldEntity, entity);
+            return oldEntity;
+        }
+    }
+
+    protected synchronized E removeEntity(ID id) {
+        synchronized (listenerLock) {
+            E oldEntity = entities.remove(id);
+            if (oldEntity != null) {
+                notifyListeners(oldEntity, null);
+            }
+            return oldEntity;
+        }
+    }
+
+    protected synchronized void clearEntities() {
+        synchronized (listenerLock) {
+            if (!listeners.isEmpty()) {
+                entities.values().forEach(entity -> notifyListeners(entity, null));
+            }
+            entities.clear();
+        }
+    }
+
+    @Override
+    public E findOne(ID id) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            if (id == null) {
+                throw new IllegalArgumentException("ID-ul nu poate fi null! \n");
+            } else {
+                return entities.get(id);
+            }
+        } finally {
+            metrics.findOne.recordSince(start);
+        }
+    }
+
+    @Override
+    public Iterable<E> findAll() {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doFindAll();
+        } finally {
+            metrics.findAll.recordSince(start);
+        }
+    }
+
+    protected Iterable<E> doFindAll() {
+        return entities.values();
+    }
+
+    /**
+     * The stream traverses a snapshot of the entities taken when its terminal operation starts,
+     * so it is sized exactly and splits into equal halves for parallel streams.
+     */
+    @Override
+    public Stream<E> stream() {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doStream();
+        } finally {
+            metrics.stream.recordSince(start);
+        }
+    }
+
+    protected Stream<E> doStream() {
+        int characteristics = Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        return StreamSupport.stream(() -> snapshotSpliterator(characteristics),
+                characteristics | Spliterator.SIZED | Spliterator.SUBSIZED, false);
+    }
+
+    private Spliterator<E> snapshotSpliterator(int characteristics) {
+        return Spliterators.spliterator(entities.values().toArray(), characteristics);
+    }
+
+    @Override
+    public List<E> findPage(int offset, int limit) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return Pages.page(doStream(), offset, limit);
+        } finally {
+            metrics.findPage.recordSince(start);
+        }
+    }
+
+    /**
+     * Selects the page in a single pass over the entities, without sorting them.
+     * @throws ClassCastException if the ids are not Comparable.
+     */
+    @Override
+    public List<E> findAfter(ID lastId, int limit) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doFindAfter(lastId, limit);
+        } finally {
+            metrics.findAfter.recordSince(start);
+        }
+    }
+
+    protected List<E> doFindAfter(ID lastId, int limit) {
+        Comparator<ID> order = idOrder();
+        Iterator<E> candidates = entities.values().stream()
+                .filter(entity -> lastId == null || order.compare(entity.getID(), lastId) > 0)
+                .iterator();
+        return Pages.smallest(candidates, Comparator.comparing(HasID::getID, order), limit);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<ID> idOrder() {
+        return (Comparator) Comparator.naturalOrder();
+    }
+
+    @Override
+    public E save(E entity) throws ValidationException, AlreadyExistsException {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doSave(entity);
+        } finally {
+            metrics.save.recordSince(start);
+        }
+    }
+
+    protected synchronized E doSave(E entity) throws ValidationException, AlreadyExistsException {
+        validator.validate(entity);
+
+        synchronized (listenerLock) {
+            E oldEntity = entities.putIfAbsent(entity.getID(), entity);
+
+            if (oldEntity != null)
+                throw new AlreadyExistsException("Entity already exists");
+            notifyListeners(null, entity);
+        }
+
+        return entity;
+    }
+
+    @Override
+    public E delete(ID id) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doDelete(id);
+        } finally {
+            metrics.delete.recordSince(start);
+        }
+    }
+
+    protected synchronized E doDelete(ID id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID-ul nu poate fi nul! \n");
+        } else {
+            return removeEntity(id);
+        }
+    }
+
+    @Override
+    public E update(E entity) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doUpdate(entity);
+        } finally {
+            metrics.update.recordSince(start);
+        }
+    }
+
+    protected synchronized E doUpdate(E entity) {
+        try {
+            validator.validate(entity);
+            synchronized (listenerLock) {
+                E oldEntity = entities.replace(entity.getID(), entity);
+                if (oldEntity != null) {
+                    notifyListeners(oldEntity, entity);
+                }
+                return oldEntity;
+            }
+        } catch (ValidationException ve) {
+            System.out.println("Entitatea nu este valida! \n");
+            return null;
+        }
+    }
+
+    @Override
+    public BulkResult<E> saveAll(Iterable<E> newEntities) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doSaveAll(newEntities);
+        } finally {
+            metrics.saveAll.recordSince(start);
+        }
+    }
+
+    protected synchronized BulkResult<E> doSaveAll(Iterable<E> newEntities) {
+        BulkResult<E> result = new BulkResult<>();
+        Map<ID, E> valid = new LinkedHashMap<>();
+
+        for (E entity : newEntities) {
+            try {
+                if (entity == null) {
+                    throw new IllegalArgumentException("Entitatea nu poate fi nula! \n");
+                }
+                validator.validate(entity);
+                if (entities.containsKey(entity.getID()) || valid.putIfAbsent(entity.getID(), entity) != null) {
+                    throw new AlreadyExistsException("Entity already exists");
+                }
+            } catch (ValidationException | AlreadyExistsException | IllegalArgumentException e) {
+                result.addFailure(entity, e);
+            }
+        }
+
+        for (E entity : valid.values()) {
+            putEntity(entity);
+            result.addSuccess(entity);
+        }
+        return result;
+    }
+
+    @Override
+    public BulkResult<ID> deleteAll(Iterable<ID> ids) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doDeleteAll(ids);
+        } finally {
+            metrics.deleteAll.recordSince(start);
+        }
+    }
+
+    protected synchronized BulkResult<ID> doDeleteAll(Iterable<ID> ids) {
+        return deleteAll(ids, new ArrayList<>());
+    }
+
+    /**
+     * @param removed - receives the removed entities, in the order they were removed
+     */
+    protected synchronized BulkResult<ID> deleteAll(Iterable<ID> ids, List<E> removed) {
+        BulkResult<ID> result = new BulkResult<>();
+        Set<ID> valid = new LinkedHashSet<>();
+
+        for (ID id : ids) {
+            if (id == null) {
+                result.addFailure(null, new IllegalArgumentException("ID-ul nu poate fi nul! \n"));
+            } else if (!entities.containsKey(id) || !valid.add(id)) {
+                result.addFailure(id, new NoSuchElementException("Entitatea nu exista! \n"));
+            }
+        }
+
+        for (ID id : valid) {
+            removed.add(removeEntity(id));
+            result.addSuccess(id);
+        }
+        return result;
+    }
+
+    @Override
+    public BulkResult<E> updateAll(Iterable<E> newEntities) {
+        long start = metrics.start();
+        try {
+            ensureLoaded();
+            return doUpdateAll(newEntities);
+        } finally {
+            metrics.updateAll.recordSince(start);
+        }
+    }
+
+    protected synchronized BulkResult<E> doUpdateAll(Iterable<E> newEntities) {
+        BulkResult<E> result = new BulkResult<>();
+        List<E> valid = new ArrayList<>();
+
+        for (E entity : newEntities) {
+            try {
+                if (entity == null) {
+                    throw new IllegalArgumentException("Entitatea nu poate fi nula! \n");
+                }
+                validator.validate(entity);
+                if (!entities.containsKey(entity.getID())) {
+                    throw new NoSuchElementException("Entitatea nu exista! \n");
+                }
+                valid.add(entity);
+            } catch (ValidationException | IllegalArgumentException | NoSuchElementException e) {
+                result.addFailure(entity, e);
+            }
+        }
+
+        for (E entity : valid) {
+            putEntity(entity);
+            result.addSuccess(entity);
+        }
+        return result;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
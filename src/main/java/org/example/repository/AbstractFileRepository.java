@@ -1,49 +1,850 @@
-package org.example.repository;
-
-import org.example.domain.HasID;
-import org.example.validation.AlreadyExistsException;
-import org.example.validation.ValidationException;
-import org.example.validation.Validator;
-
-public abstract class AbstractFileRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID,E>{
-    protected String filename;
-
-    public AbstractFileRepository(Validator<E> validator, String filename) {
-        super(validator);
-        this.filename = filename;
-    }
-
-    protected abstract void loadFromFile();
-    protected abstract void writeToFile(E entity);
-    protected abstract void writeToFileAll();
-
-    @Override
-    public Iterable<E> findAll() {
-        loadFromFile();
-        return super.findAll();
-    }
-
-    @Override
-    public E save(E entity) throws ValidationException, AlreadyExistsException {
-        E result = super.save(entity);
-        writeToFile(entity);
-
-        return result;
-    }
-
-    @Override
-    public E delete(ID id) {
-        E result = super.delete(id);
-        writeToFileAll();
-
-        return result;
-    }
-
-    @Override
-    public E update(E newEntity) {
-        E result = super.update(newEntity);
-        writeToFileAll();
-
-        return result;
-    }
-}
+package org.example.repository;
+
+import org.example.domain.HasID;
+import org.example.validation.AlreadyExistsException;
+import org.example.validation.ValidationException;
+import org.example.validation.Validator;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+public abstract class AbstractFileRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID,E>{
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    public static final int MIN_COMPACTION_RECORDS = 64;
+    public static final int DEFAULT_LOAD_CHUNK_SIZE = 1 << 22;
+
+    protected static final String TOMBSTONE = "#";
+
+    // size of the blocks at the start and at the end of the loaded bytes whose checksum tells an append from a rewrite
+    private static final int PREFIX_CHECK_BLOCK = 1 << 12;
+
+    protected String filename;
+    protected final boolean compressed;
+    protected final WriteBehindQueue<String> queue = WriteBehindQueue.ofLines(this, this::persist);
+    protected final SnapshotScheduler snapshots = new SnapshotScheduler(this::writeToFileAll);
+
+    private final StoreLock storeLock;
+    private long loadedSize = -1;
+    private long loadedModified;
+    private long loadedOffset;
+    private Object loadedKey;
+    private long loadedCheck;
+    // counts the loads that had to read the whole file, because it was rewritten
+    private int fullLoads;
+
+    private boolean logStructured;
+    private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private int recordCount;
+    private int loadChunkSize = DEFAULT_LOAD_CHUNK_SIZE;
+    private volatile boolean loaded;
+    private volatile boolean stale;
+    private FileWatcher.Registration watching;
+
+    /**
+     * A line of the file parsed and validated, but not yet applied to the entities.
+     */
+    private static final class ParsedLine<E> {
+        private final E entity;
+        private final boolean tombstone;
+        private final String error;
+
+        private ParsedLine(E entity, boolean tombstone, String error) {
+            this.entity = entity;
+            this.tombstone = tombstone;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The file is kept compressed if its name ends in .gz.
+     */
+    public AbstractFileRepository(Validator<E> validator, String filename) {
+        this(validator, filename, Compression.isCompressed(filename));
+    }
+
+    /**
+     * @param compressed - whether the file is kept GZIP compressed; every batch of appended lines
+     *                   becomes a GZIP member of its own, and compactions write the file as a single member
+     */
+    public AbstractFileRepository(Validator<E> validator, String filename, boolean compressed) {
+        super(validator);
+        this.filename = filename;
+        this.compressed = compressed;
+        this.storeLock = StoreLock.of(filename);
+    }
+
+    protected abstract E getEntityFromLine(String line);
+    protected abstract String getLineFromEntity(E entity);
+
+    public FlushPolicy getFlushPolicy() { return queue.getPolicy(); }
+
+    public void setFlushPolicy(FlushPolicy flushPolicy) { queue.setPolicy(flushPolicy); }
+
+    public boolean isLogStructured() { return logStructured; }
+
+    /**
+     * In log-structured mode deletes and updates are appended to the file as tombstone and upsert
+     * records instead of rewriting it; the file is compacted in the background once the share of
+     * superseded records reaches the compaction threshold.
+     */
+    public synchronized void setLogStructured(boolean logStructured) {
+        this.logStructured = logStructured;
+    }
+
+    public double getCompactionThreshold() { return compactionThreshold; }
+
+    /**
+     * @param compactionThreshold - share of superseded records, between 0 and 1, that triggers a compaction
+     */
+    public void setCompactionThreshold(double compactionThreshold) {
+        if (compactionThreshold <= 0 || compactionThreshold > 1) {
+            throw new IllegalArgumentException("Pragul de compactare trebuie sa fie intre 0 si 1! \n");
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public boolean isCompressed() { return compressed; }
+
+    public int getLoadChunkSize() { return loadChunkSize; }
+
+    /**
+     * @param loadChunkSize - size in bytes of the line-aligned chunks that are parsed in parallel
+     *                      when more than one chunk has to be read; compressed files are always read sequentially
+     */
+    public void setLoadChunkSize(int loadChunkSize) {
+        if (loadChunkSize < 1) {
+            throw new IllegalArgumentException("Dimensiunea unui fragment trebuie sa fie pozitiva! \n");
+        }
+        this.loadChunkSize = loadChunkSize;
+    }
+
+    /**
+     * @return the share of records in the file that no longer describe a live entity
+     */
+    public synchronized double getGarbageRatio() {
+        return recordCount == 0 ? 0 : (double) (recordCount - entities.size()) / recordCount;
+    }
+
+    public synchronized boolean isWatched() { return watching != null; }
+
+    /**
+     * @param watched - whether the changes other processes make to the file are read on the next access,
+     *                rather than only by findAll, stream and findAfter
+     */
+    public synchronized void setWatched(boolean watched) {
+        try {
+            if (watched && watching == null) {
+                watching = FileWatcher.shared().watch(() -> stale = true, filename);
+            } else if (!watched && watching != null) {
+                watching.close();
+                watching = null;
+            }
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the file once, before the first operation; later changes to the file are picked up by findAll,
+     * or by the next operation once the watcher reports them.
+     */
+    @Override
+    protected void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    loadFromFile();
+                    loaded = true;
+                }
+            }
+        } else if (stale) {
+            synchronized (this) {
+                if (stale) {
+                    stale = false;
+                    queue.flush();
+                    loadFromFile();
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings the entities up to date with the file.
+     * Nothing is read if the file did not change since the last load; if it only grew,
+     * just the appended lines are parsed; otherwise the whole file is parsed again.
+     * A later line for an ID overrides the earlier ones.
+     */
+    protected synchronized void loadFromFile() {
+        File file = new File(filename);
+        long size = file.length();
+        long modified = file.lastModified();
+
+        if (size == loadedSize && modified == loadedModified) {
+            return;
+        }
+
+        long start = metrics.start();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            boolean appended = isAppendedTo(channel, size);
+            if (appended) {
+                try {
+                    loadedOffset = readLines(channel, loadedOffset);
+                } catch (IOException ioe) {
+                    // the tail does not continue the loaded content: the file was rewritten after all
+                    appended = false;
+                }
+            }
+            if (!appended) {
+                clearEntities();
+                recordCount = 0;
+                fullLoads++;
+                loadedOffset = readLines(channel, 0);
+            }
+            loadedSize = size;
+            loadedModified = modified;
+            loadedKey = fileKey();
+            loadedCheck = prefixCheck(channel, loadedOffset);
+        } catch (NoSuchFileException nsfe) {
+            clearEntities();
+            fullLoads++;
+            recordCount = 0;
+            loadedSize = 0;
+            loadedModified = 0;
+            loadedOffset = 0;
+            loadedKey = null;
+            loadedCheck = 0;
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+        }
+        metrics.load.recordSince(start);
+    }
+
+    /**
+     * A file that grew was appended to only if it is still the same file, not one renamed over it,
+     * and the bytes already loaded are unchanged; only their first and last blocks are compared,
+     * so that telling an append from a rewrite does not read the whole file.
+     */
+    private boolean isAppendedTo(FileChannel channel, long size) throws IOException {
+        if (loadedSize < 0 || size < loadedSize) {
+            return false;
+        }
+        if (size == loadedSize) {
+            // same length but a newer timestamp: the file was rewritten
+            return false;
+        }
+        if (loadedOffset == 0) {
+            return true;
+        }
+
+        return Objects.equals(fileKey(), loadedKey) && prefixCheck(channel, loadedOffset) == loadedCheck;
+    }
+
+    private Object fileKey() throws IOException {
+        return Files.readAttributes(Paths.get(filename), BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * @return a checksum of the first and the last block of the bytes before the offset
+     */
+    private static long prefixCheck(FileChannel channel, long offset) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(PREFIX_CHECK_BLOCK);
+        updateCheck(crc, channel, buffer, 0, Math.min(offset, PREFIX_CHECK_BLOCK));
+        if (offset > PREFIX_CHECK_BLOCK) {
+            updateCheck(crc, channel, buffer, Math.max(PREFIX_CHECK_BLOCK, offset - PREFIX_CHECK_BLOCK), offset);
+        }
+        return crc.getValue();
+    }
+
+    private static void updateCheck(CRC32C crc, FileChannel channel, ByteBuffer buffer, long start, long end)
+            throws IOException {
+        buffer.clear().limit((int) (end - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+        }
+        buffer.flip();
+        crc.update(buffer);
+    }
+
+    /**
+     * Parses every line starting at the given offset; in compressed mode the offset
+     * is the start of a GZIP member and every member after it is read.
+     * A last line without a line break is parsed only when the whole file is read: when reading
+     * just the appended lines it may still be being written, and is left for the next read.
+     * @return the offset right after the last line parsed
+     */
+    private long readLines(FileChannel channel, long offset) throws IOException {
+        boolean whole = offset == 0;
+        if (compressed) {
+            long end = channel.size();
+            if (end > offset) {
+                channel.position(offset);
+                try (InputStream in = Compression.input(Channels.newInputStream(channel), true)) {
+                    parseLines(in, 0, whole);
+                }
+            }
+            return end;
+        }
+
+        long end = whole ? channel.size() : lastLineEnd(channel, offset);
+        if (end - offset > loadChunkSize) {
+            readChunks(channel, offset, end, whole);
+            return end;
+        }
+
+        channel.position(offset);
+        return parseLines(Channels.newInputStream(channel), offset, whole);
+    }
+
+    /**
+     * Parses every complete line of the stream.
+     * @param offset - the position of the stream in the file
+     * @param whole - whether the end of the stream also ends its last line
+     * @return the position right after the last line parsed
+     */
+    private long parseLines(InputStream in, long offset, boolean whole) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        byte[] buffer = new byte[1 << 16];
+        long position = offset;
+
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            int start = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    line.write(buffer, start, i - start);
+                    applyLine(parseLine(line.toString(StandardCharsets.UTF_8)));
+                    line.reset();
+                    start = i + 1;
+                    offset = position + start;
+                }
+            }
+            line.write(buffer, start, read - start);
+            position += read;
+        }
+        if (whole && line.size() > 0) {
+            applyLine(parseLine(line.toString(StandardCharsets.UTF_8)));
+            offset = position;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Splits the lines between offset and end into chunks of about loadChunkSize bytes that are parsed
+     * in parallel on the common fork-join pool. The chunks are applied in file order, so a later line
+     * for an ID still overrides the earlier ones.
+     */
+    private void readChunks(FileChannel channel, long offset, long end, boolean whole) throws IOException {
+        List<ForkJoinTask<List<ParsedLine<E>>>> chunks = new ArrayList<>();
+        long start = offset;
+        while (start < end) {
+            long chunkStart = start;
+            long chunkEnd = end - start <= loadChunkSize ? end : nextLineStart(channel, start + loadChunkSize, end);
+            boolean last = whole && chunkEnd == end;
+            chunks.add(ForkJoinPool.commonPool().submit(() -> parseChunk(channel, chunkStart, chunkEnd, last)));
+            start = chunkEnd;
+        }
+
+        try {
+            for (ForkJoinTask<List<ParsedLine<E>>> chunk : chunks) {
+                chunk.get().forEach(this::applyLine);
+            }
+        } catch (InterruptedException ie) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ee) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            throw ee.getCause() instanceof IOException ? (IOException) ee.getCause() : new IOException(ee.getCause());
+        }
+    }
+
+    /**
+     * @param last - whether the chunk ends the file, so that its end also ends its last line
+     */
+    private List<ParsedLine<E>> parseChunk(FileChannel channel, long start, long end, boolean last) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+        }
+        byte[] bytes = buffer.array();
+
+        List<ParsedLine<E>> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < buffer.position(); i++) {
+            if (bytes[i] == '\n') {
+                ParsedLine<E> line = parseLine(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                if (line != null) {
+                    lines.add(line);
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (last && lineStart < buffer.position()) {
+            ParsedLine<E> line = parseLine(new String(bytes, lineStart, buffer.position() - lineStart, StandardCharsets.UTF_8));
+            if (line != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return the offset right after the last line break at or after the given offset, or the offset itself
+     */
+    private long lastLineEnd(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        long end = channel.size();
+        while (end > offset) {
+            long start = Math.max(offset, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            channel.read(buffer, start);
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return offset;
+    }
+
+    /**
+     * @return the offset of the first line starting after the given position, at most end
+     */
+    private long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    /**
+     * Parses and validates a line without touching the entities; safe to call from several threads.
+     * @return null for a blank line
+     */
+    private ParsedLine<E> parseLine(String line) {
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        if (line.isEmpty()) {
+            return null;
+        }
+
+        try {
+            if (line.startsWith(TOMBSTONE)) {
+                return new ParsedLine<>(getEntityFromLine(line.substring(TOMBSTONE.length())), true, null);
+            }
+
+            E entity = getEntityFromLine(line);
+            validator.validate(entity);
+            return new ParsedLine<>(entity, false, null);
+        } catch (ValidationException ve) {
+            return new ParsedLine<>(null, false, "Linie invalida in " + filename + ": " + line + " - " + ve.getMessage());
+        } catch (RuntimeException re) {
+            return new ParsedLine<>(null, false, "Linie corupta in " + filename + ": " + line);
+        }
+    }
+
+    private void applyLine(ParsedLine<E> line) {
+        if (line == null) {
+            return;
+        }
+        recordCount++;
+
+        if (line.error != null) {
+            System.out.println(line.error);
+        } else if (line.tombstone) {
+            removeEntity(line.entity.getID());
+        } else {
+            putEntity(line.entity);
+        }
+    }
+
+    private boolean isLoaded() {
+        File file = new File(filename);
+        return file.length() == loadedSize && file.lastModified() == loadedModified;
+    }
+
+    private void markLoaded() throws IOException {
+        File file = new File(filename);
+        loadedSize = file.length();
+        loadedModified = file.lastModified();
+        loadedOffset = loadedSize;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            loadedKey = fileKey();
+            loadedCheck = prefixCheck(channel, loadedOffset);
+        }
+    }
+
+    protected void writeToFile(E entity) {
+        appendRecord(getLineFromEntity(entity));
+    }
+
+    private void appendRecord(String record) {
+        queue.append(record);
+    }
+
+    /**
+     * Appends the records while holding the lock of the store.
+     */
+    @SuppressWarnings("try")
+    private void persist(List<String> records, boolean rewrite, boolean sync) throws IOException {
+        if (rewrite) {
+            snapshots.schedule();
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        StringBuilder batch = new StringBuilder();
+        for (String record : records) {
+            batch.append(record).append('\n');
+        }
+
+        long start = metrics.start();
+        byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+        long written;
+        try (StoreLock.Held held = storeLock.acquire()) {
+            boolean loaded = isLoaded();
+            // a last line written by hand without a line break must not run into the first record
+            boolean lineBreak = !compressed && !endsWithLineBreak();
+            try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long size = channel.size();
+                OutputStream out = Compression.output(Channels.newOutputStream(channel), compressed);
+                if (lineBreak) {
+                    out.write('\n');
+                }
+                out.write(bytes);
+                Compression.finish(out);
+                if (sync) {
+                    channel.force(false);
+                }
+                written = channel.size() - size;
+            }
+
+            // appends made by someone else since the last load are picked up by the next reload
+            if (loaded) {
+                markLoaded();
+            }
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            throw ioe;
+        }
+        recordCount += records.size();
+        metrics.persist.recordSince(start);
+        metrics.persistedBytes.record(written);
+    }
+
+    private boolean endsWithLineBreak() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            return channel.size() == 0 || channel.read(lastByte, channel.size() - 1) == 1 && lastByte.get(0) == '\n';
+        } catch (NoSuchFileException nsfe) {
+            return true;
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (recordCount >= MIN_COMPACTION_RECORDS && getGarbageRatio() >= compactionThreshold) {
+            snapshots.schedule();
+        }
+    }
+
+    /**
+     * Rewrites the file so that it holds exactly one record per live entity, and waits for it.
+     */
+    public void compact() {
+        snapshots.schedule();
+        snapshots.await();
+    }
+
+    /**
+     * Rewrites the file from a copy of the entities; runs on the snapshot thread.
+     * The live records are written to a temporary file without blocking mutations; records appended
+     * in the meantime are copied over before the temporary file atomically replaces the original,
+     * so a crash leaves either the old or the new file in place.
+     * In compressed mode the live records and the copied tail are written as two GZIP members.
+     * If another process rewrote the file in the meantime its version is kept and read instead, so when
+     * several processes change the same store only appended records, as in log-structured mode, are never lost.
+     */
+    @SuppressWarnings("try")
+    protected void writeToFileAll() {
+        long start = metrics.start();
+        List<String> records = new ArrayList<>();
+        long snapshotOffset;
+        int snapshotLoads;
+
+        synchronized (this) {
+            queue.flush();
+            loadFromFile();
+            for (E entity : entities.values()) {
+                records.add(getLineFromEntity(entity));
+            }
+            snapshotOffset = loadedOffset;
+            snapshotLoads = fullLoads;
+        }
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path compacted = StoreLock.temporaryFile(target);
+        try {
+            try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                    Compression.output(Files.newOutputStream(compacted), compressed), StandardCharsets.UTF_8))) {
+                for (String record : records) {
+                    bw.write(record + "\n");
+                }
+            }
+
+            synchronized (this) {
+                try (StoreLock.Held held = storeLock.acquire()) {
+                    loadFromFile();
+                    if (fullLoads != snapshotLoads) {
+                        Files.delete(compacted);
+                        return;
+                    }
+
+                    int tailRecords = 0;
+                    try (FileChannel destination = FileChannel.open(compacted, StandardOpenOption.APPEND)) {
+                        if (Files.exists(target)) {
+                            try (FileChannel source = FileChannel.open(target, StandardOpenOption.READ)) {
+                                tailRecords = copyTail(source, snapshotOffset, destination);
+                            }
+                        }
+                        destination.force(true);
+                    }
+
+                    Files.move(compacted, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    recordCount = records.size() + tailRecords;
+                    markLoaded();
+                }
+            }
+            metrics.snapshot.recordSince(start);
+            metrics.snapshotBytes.record(new File(filename).length());
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Copies the lines appended after the given offset; in compressed mode they are written as a single GZIP member.
+     * @return the number of lines copied
+     */
+    private int copyTail(FileChannel source, long offset, FileChannel destination) throws IOException {
+        if (source.size() <= offset) {
+            return 0;
+        }
+
+        int lines = 0;
+        source.position(offset);
+        try (InputStream in = Compression.input(Channels.newInputStream(source), compressed)) {
+            OutputStream out = Compression.output(Channels.newOutputStream(destination), compressed);
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+                out.write(buffer, 0, read);
+            }
+            Compression.finish(out);
+        }
+        return lines;
+    }
+
+    @Override
+    protected synchronized Iterable<E> doFindAll() {
+        loadFromFile();
+        return super.doFindAll();
+    }
+
+    @Override
+    protected synchronized Stream<E> doStream() {
+        loadFromFile();
+        return super.doStream();
+    }
+
+    @Override
+    protected synchronized List<E> doFindAfter(ID lastId, int limit) {
+        loadFromFile();
+        return super.doFindAfter(lastId, limit);
+    }
+
+    /**
+     * Streams the entities straight from the file, parsing every line only when the stream reaches it,
+     * so the file is never loaded into memory as a whole. The pending changes are written first.
+     * Parallel streams split an uncompressed file into line-aligned ranges.
+     * Tombstones are skipped, but in log-structured mode the superseded versions of an entity stay in
+     * the file until the next compaction and show up in the stream as well.
+     * The stream keeps the file open until it is closed.
+     */
+    public Stream<E> streamFromFile() {
+        flush();
+        try {
+            return lines(Paths.get(filename))
+                    .map(this::parseLine)
+                    .filter(line -> line != null && !line.tombstone && isValid(line))
+                    .map(line -> line.entity);
+        } catch (NoSuchFileException nsfe) {
+            return Stream.empty();
+        } catch (IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+            return Stream.empty();
+        }
+    }
+
+    private Stream<String> lines(Path path) throws IOException {
+        if (!compressed) {
+            return Files.lines(path, StandardCharsets.UTF_8);
+        }
+        if (Files.size(path) == 0) {
+            return Stream.empty();
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Compression.input(Files.newInputStream(path), true), StandardCharsets.UTF_8));
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        });
+    }
+
+    private boolean isValid(ParsedLine<E> line) {
+        if (line.error != null) {
+            System.out.println(line.error);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected synchronized E doSave(E entity) throws ValidationException, AlreadyExistsException {
+        E result = super.doSave(entity);
+        writeToFile(entity);
+
+        return result;
+    }
+
+    @Override
+    protected synchronized E doDelete(ID id) {
+        E result = super.doDelete(id);
+        if (!logStructured) {
+            queue.rewrite();
+        } else if (result != null) {
+            appendRecord(TOMBSTONE + getLineFromEntity(result));
+            scheduleCompaction();
+        }
+
+        return result;
+    }
+
+    @Override
+    protected synchronized E doUpdate(E newEntity) {
+        E result = super.doUpdate(newEntity);
+        if (!logStructured) {
+            queue.rewrite();
+        } else if (result != null) {
+            appendRecord(getLineFromEntity(newEntity));
+            scheduleCompaction();
+        }
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<E> doSaveAll(Iterable<E> newEntities) {
+        BulkResult<E> result = super.doSaveAll(newEntities);
+        appendRecords("", result.getSucceeded());
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<ID> doDeleteAll(Iterable<ID> ids) {
+        List<E> removed = new ArrayList<>();
+        BulkResult<ID> result = deleteAll(ids, removed);
+        if (!logStructured) {
+            if (!removed.isEmpty()) {
+                queue.rewrite();
+            }
+        } else {
+            appendRecords(TOMBSTONE, removed);
+            scheduleCompaction();
+        }
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<E> doUpdateAll(Iterable<E> newEntities) {
+        BulkResult<E> result = super.doUpdateAll(newEntities);
+        if (!logStructured) {
+            if (!result.getSucceeded().isEmpty()) {
+                queue.rewrite();
+            }
+        } else {
+            appendRecords("", result.getSucceeded());
+            scheduleCompaction();
+        }
+
+        return result;
+    }
+
+    private void appendRecords(String prefix, List<E> changed) {
+        List<String> records = new ArrayList<>(changed.size());
+        for (E entity : changed) {
+            records.add(prefix + getLineFromEntity(entity));
+        }
+        queue.appendAll(records);
+    }
+
+    /**
+     * Writes the queued changes and waits for the requested rewrites.
+     */
+    @Override
+    public void flush() {
+        queue.flush();
+        snapshots.await();
+    }
+
+    /**
+     * Writes the pending changes and stops watching the file.
+     */
+    @Override
+    public void close() {
+        super.close();
+        setWatched(false);
+    }
+}
@@ -1,111 +1,632 @@
-package org.example.repository;
-
-import org.example.domain.HasID;
-import org.example.validation.AlreadyExistsException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-import org.example.validation.ValidationException;
-import org.example.validation.Validator;
-
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.IOException;
-
-public abstract class AbstractXMLRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID, E> {
-    protected String XMLfilename;
-
-    public AbstractXMLRepository(Validator<E> validator, String XMLfilename) {
-        super(validator);
-        this.XMLfilename = XMLfilename;
-    }
-
-    protected abstract E getEntityFromNode(Element node);
-    protected abstract Element getElementFromEntity(E entity, Document XMLdocument);
-
-    protected void loadFromXmlFile() {
-        try {
-            Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(XMLfilename);
-            Element root = XMLdocument.getDocumentElement();
-            NodeList list = root.getChildNodes();
-
-            for(int i = 0; i < list.getLength(); i++) {
-                Node node = list.item(i);
-                if (node.getNodeType() == Element.ELEMENT_NODE) {
-                    try {
-                        super.save(getEntityFromNode((Element)node));
-                    }
-                    catch(ValidationException | AlreadyExistsException ve) {
-                        ve.printStackTrace();
-                    }
-                }
-            }
-        }
-        catch(ParserConfigurationException pce) {
-            pce.printStackTrace();
-        }
-        catch(SAXException s) {
-            s.printStackTrace();
-        }
-        catch(IOException i) {
-            i.printStackTrace();
-        }
-    }
-
-    protected void writeToXmlFile() {
-        try {
-            Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            Element root = XMLdocument.createElement("Entitati");
-            XMLdocument.appendChild(root);
-
-            entities.values().forEach(entity -> root.appendChild(getElementFromEntity(entity, XMLdocument)));
-            Transformer XMLtransformer = TransformerFactory.newInstance().newTransformer();
-            XMLtransformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            XMLtransformer.transform(new DOMSource(XMLdocument), new StreamResult(XMLfilename));
-        }
-        catch(ParserConfigurationException pce) {
-            pce.printStackTrace();
-        }
-        catch(TransformerConfigurationException tce) {
-            tce.printStackTrace();
-        }
-        catch(TransformerException te) {
-            te.printStackTrace();
-        }
-    }
-
-    protected Element createElement(Document XMLdocument, String tag, String value) {
-        Element element = XMLdocument.createElement(tag);
-        element.setTextContent(value);
-        return element;
-    }
-
-    @Override
-    public E save(E entity) throws AlreadyExistsException, ValidationException {
-        E result = super.save(entity);
-        writeToXmlFile();
-
-        return result;
-    }
-
-    @Override
-    public E delete(ID id) {
-        E result = super.delete(id);
-        writeToXmlFile();
-
-        return result;
-    }
-
-    @Override
-    public E update(E newEntity) {
-        E result = super.update(newEntity);
-        writeToXmlFile();
-
-        return result;
-    }
-}
+package org.example.repository;
+
+import org.example.domain.HasID;
+import org.example.validation.AlreadyExistsException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.example.validation.ValidationException;
+import org.example.validation.Validator;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public abstract class AbstractXMLRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID, E> {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 64;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n";
+    private static final String LOG_ATTRIBUTE = "log";
+
+    private static final char SAVE = 'S';
+    private static final char UPDATE = 'U';
+    private static final char DELETE = 'D';
+
+    protected String XMLfilename;
+    protected final boolean compressed;
+    protected WriteAheadLog log;
+    protected final WriteBehindQueue<String> queue;
+    protected final SnapshotScheduler snapshots = new SnapshotScheduler(this::snapshot);
+    private final StoreLock storeLock;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private volatile boolean loaded;
+    private volatile boolean stale;
+    private FileWatcher.Registration watching;
+
+    // the stamp of the XML file and the length of the log as this repository last read or wrote them
+    private String knownStamp;
+    private long knownPosition;
+
+    private interface EntitySink<E> {
+        void accept(E entity) throws ValidationException, AlreadyExistsException;
+    }
+
+    /**
+     * The XML file is kept compressed if its name ends in .gz.
+     */
+    public AbstractXMLRepository(Validator<E> validator, String XMLfilename) {
+        this(validator, XMLfilename, Compression.isCompressed(XMLfilename));
+    }
+
+    /**
+     * @param compressed - whether the XML file is kept GZIP compressed; it is still read and written
+     *                   as a stream, and the write-ahead log next to it is not compressed
+     */
+    public AbstractXMLRepository(Validator<E> validator, String XMLfilename, boolean compressed) {
+        super(validator);
+        this.XMLfilename = XMLfilename;
+        this.compressed = compressed;
+        this.log = new WriteAheadLog(XMLfilename + WriteAheadLog.EXTENSION);
+        this.queue = WriteBehindQueue.ofLines(this, this::persist);
+        this.storeLock = StoreLock.of(XMLfilename);
+    }
+
+    protected abstract E getEntityFromNode(Element node);
+
+    /**
+     * Streaming counterpart of getEntityFromNode.
+     * @param reader - positioned on the start tag of the entity element; must be left on its end tag
+     */
+    protected abstract E getEntityFromStream(XMLStreamReader reader) throws XMLStreamException;
+    protected abstract Element getElementFromEntity(E entity, Document XMLdocument);
+
+    /**
+     * Streaming counterpart of getElementFromEntity: writes the complete entity element.
+     */
+    protected abstract void writeEntityToStream(E entity, XMLStreamWriter writer) throws XMLStreamException;
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    public FlushPolicy getFlushPolicy() { return queue.getPolicy(); }
+
+    public void setFlushPolicy(FlushPolicy flushPolicy) { queue.setPolicy(flushPolicy); }
+
+    public boolean isCompressed() { return compressed; }
+
+    public int getCheckpointInterval() { return checkpointInterval; }
+
+    /**
+     * @param checkpointInterval - number of logged mutations after which the full XML file is rewritten
+     *                           and the log is truncated; must be at least 1
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Intervalul de checkpoint trebuie sa fie pozitiv! \n");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public synchronized boolean isWatched() { return watching != null; }
+
+    /**
+     * @param watched - whether the changes other processes make to the XML file and the log are read
+     *                on the next access; unwatched, they are only read when they get in the way of a write
+     */
+    public synchronized void setWatched(boolean watched) {
+        try {
+            if (watched && watching == null) {
+                watching = FileWatcher.shared().watch(() -> stale = true, XMLfilename, log.getFilename());
+            } else if (!watched && watching != null) {
+                watching.close();
+                watching = null;
+            }
+        }
+        catch(IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the XML file and replays the log before the first operation,
+     * and reads the changes made by other processes once the watcher reports them.
+     */
+    @Override
+    protected void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    loadFromXmlFile();
+                    loaded = true;
+                }
+            }
+        } else if (stale) {
+            synchronized (this) {
+                if (stale) {
+                    stale = false;
+                    queue.flush();
+                    refresh();
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    protected void loadFromXmlFile() {
+        long start = metrics.start();
+        try (StoreLock.Held held = storeLock.acquire()) {
+            String snapshotLog = null;
+            try {
+                snapshotLog = readXmlFile(super::doSave);
+            }
+            catch(XMLStreamException xse) {
+                metrics.errors.increment();
+                xse.printStackTrace();
+            }
+            catch(IOException i) {
+                metrics.errors.increment();
+                i.printStackTrace();
+            }
+
+            replayLog(snapshotLog);
+            markRead();
+        }
+        catch(IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+        }
+        metrics.load.recordSince(start);
+    }
+
+    /**
+     * Streams the entities of the XML file to the sink; an entity the sink rejects is reported and skipped.
+     * A missing XML file holds no entities: the store is then only in the log, until the first snapshot.
+     * @return the id of the log the XML file was last snapshotted against, or null
+     */
+    private String readXmlFile(EntitySink<E> sink) throws IOException, XMLStreamException {
+        if (!new File(XMLfilename).exists()) {
+            return null;
+        }
+        try (InputStream file = new FileInputStream(XMLfilename);
+             InputStream in = new BufferedInputStream(Compression.input(file, compressed))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                reader.nextTag();
+                String snapshotLog = reader.getAttributeValue(null, LOG_ATTRIBUTE);
+                while (nextChildElement(reader)) {
+                    try {
+                        sink.accept(getEntityFromStream(reader));
+                    }
+                    catch(ValidationException | AlreadyExistsException ve) {
+                        metrics.errors.increment();
+                        ve.printStackTrace();
+                    }
+                }
+                return snapshotLog;
+            }
+            finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * @param snapshotLog - id of the log the XML file was last snapshotted against, or null
+     */
+    protected void replayLog(String snapshotLog) {
+        for (String entry : log.open(snapshotLog, getFileStamp())) {
+            applyEntry(entry);
+        }
+    }
+
+    private void applyEntry(String entry) {
+        try {
+            E entity = parseEntry(entry);
+            if (entry.charAt(0) == DELETE) {
+                removeEntity(entity.getID());
+            } else {
+                putEntity(entity);
+            }
+        }
+        catch(XMLStreamException | RuntimeException e) {
+            // a torn entry at the end of the log is expected after a crash
+            metrics.errors.increment();
+            e.printStackTrace();
+        }
+    }
+
+    private E parseEntry(String entry) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(entry.substring(2)));
+        reader.nextTag();
+        E entity = getEntityFromStream(reader);
+        reader.close();
+        return entity;
+    }
+
+    /**
+     * Reads the changes other repositories or processes made to the store since this repository last read
+     * or wrote it: only the new log entries if just the log grew, otherwise the whole store, of which only
+     * the entities that differ replace the ones held, so that the listeners see just the real changes.
+     * Must be called while holding the lock of the repository.
+     */
+    @SuppressWarnings("try")
+    private void refresh() {
+        if (getFileStamp().equals(knownStamp) && log.position() == knownPosition) {
+            return;
+        }
+
+        try (StoreLock.Held held = storeLock.acquire()) {
+            long position = log.position();
+            if (!getFileStamp().equals(knownStamp) || position < knownPosition) {
+                reload();
+            } else if (position > knownPosition) {
+                knownPosition = log.readFrom(knownPosition, this::applyEntry);
+            }
+        }
+        catch(IOException | XMLStreamException e) {
+            metrics.errors.increment();
+            e.printStackTrace();
+        }
+    }
+
+    private void reload() throws IOException, XMLStreamException {
+        long start = metrics.start();
+        Map<ID, E> current = new LinkedHashMap<>();
+        String snapshotLog = readXmlFile(entity -> {
+            validator.validate(entity);
+            current.put(entity.getID(), entity);
+        });
+        for (String entry : log.open(snapshotLog, getFileStamp())) {
+            try {
+                E entity = parseEntry(entry);
+                if (entry.charAt(0) == DELETE) {
+                    current.remove(entity.getID());
+                } else {
+                    current.put(entity.getID(), entity);
+                }
+            }
+            catch(XMLStreamException | RuntimeException e) {
+                metrics.errors.increment();
+                e.printStackTrace();
+            }
+        }
+
+        for (ID id : new ArrayList<>(entities.keySet())) {
+            if (!current.containsKey(id)) {
+                removeEntity(id);
+            }
+        }
+        for (E entity : current.values()) {
+            E held = entities.get(entity.getID());
+            if (held == null || !formatElement(held).equals(formatElement(entity))) {
+                putEntity(entity);
+            }
+        }
+        markRead();
+        metrics.load.recordSince(start);
+    }
+
+    private void markRead() {
+        knownStamp = getFileStamp();
+        knownPosition = log.position();
+    }
+
+    /**
+     * Advances the reader to the next child element of the current element.
+     * @return true if the reader is positioned on the start of a child element,
+     * false if it reached the end of the current element instead
+     */
+    protected boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skips the element the reader is positioned on, together with all its content.
+     */
+    protected void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    protected void writeToXmlFile() {
+        ensureLoaded();
+        synchronized (this) {
+            try (StoreLock.Held held = storeLock.acquire()) {
+                refresh();
+                Files.move(writeSnapshot(entities.values()), Paths.get(XMLfilename).toAbsolutePath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                markRead();
+            }
+            catch(IOException ioe) {
+                metrics.errors.increment();
+                ioe.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Writes the entities to a temporary file that atomically replaces the XML file once complete,
+     * so a crash leaves either the old or the new file in place. The root element records the id of the log.
+     * @return the temporary file
+     */
+    private Path writeSnapshot(Collection<E> snapshot) throws IOException {
+        Path temporary = StoreLock.temporaryFile(Paths.get(XMLfilename));
+
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = Compression.output(Channels.newOutputStream(channel), compressed);
+            Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+            out.write(XML_DECLARATION);
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out);
+            writer.writeStartElement("Entitati");
+            writer.writeAttribute(LOG_ATTRIBUTE, log.getId());
+            for (E entity : snapshot) {
+                writer.writeCharacters("\n    ");
+                writeEntityToStream(entity, writer);
+            }
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.close();
+            out.flush();
+            Compression.finish(stream);
+            channel.force(true);
+            metrics.snapshotBytes.record(channel.size());
+        }
+        catch(XMLStreamException xse) {
+            Files.deleteIfExists(temporary);
+            throw new IOException(xse);
+        }
+        return temporary;
+    }
+
+    /**
+     * Requests a snapshot of the repository that replaces the XML file and truncates the write-ahead log.
+     * The snapshot is written on a background thread; flush waits for it.
+     */
+    public void checkpoint() {
+        ensureLoaded();
+        snapshots.schedule();
+    }
+
+    /**
+     * Copies the entities while holding the locks, writes them without them and drops the log entries
+     * the copy covers; entries logged while the snapshot is written, by any process, are kept.
+     * The snapshot is dropped if another process replaced the XML file in the meantime:
+     * that file already covers every entry this repository logged before the copy.
+     */
+    @SuppressWarnings("try")
+    private void snapshot() {
+        long start = metrics.start();
+        List<E> snapshot;
+        long position;
+        int covered;
+        synchronized (this) {
+            queue.flush();
+            try (StoreLock.Held held = storeLock.acquire()) {
+                refresh();
+                snapshot = new ArrayList<>(entities.values());
+                position = log.position();
+                covered = log.size();
+            }
+            catch(IOException ioe) {
+                metrics.errors.increment();
+                ioe.printStackTrace();
+                return;
+            }
+        }
+
+        try {
+            Path temporary = writeSnapshot(snapshot);
+            synchronized (this) {
+                try (StoreLock.Held held = storeLock.acquire()) {
+                    if (!getFileStamp().equals(knownStamp)) {
+                        Files.deleteIfExists(temporary);
+                        refresh();
+                        return;
+                    }
+                    // the entries logged meanwhile outlive the truncation, so they must have been read
+                    refresh();
+                    Files.move(temporary, Paths.get(XMLfilename).toAbsolutePath(),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    log.truncate(position, covered, getFileStamp());
+                    markRead();
+                }
+            }
+            metrics.snapshot.recordSince(start);
+        }
+        catch(IOException ioe) {
+            metrics.errors.increment();
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends the entries while holding the lock of the store. Changes another process made since
+     * this repository last read the store are read first; the entries, which come after them, then win.
+     */
+    @SuppressWarnings("try")
+    private void persist(List<String> entries, boolean rewrite, boolean sync) throws IOException {
+        if (!entries.isEmpty()) {
+            long start = metrics.start();
+            try (StoreLock.Held held = storeLock.acquire()) {
+                if (!getFileStamp().equals(knownStamp) || log.position() != knownPosition) {
+                    refresh();
+                    entries.forEach(this::applyEntry);
+                }
+                metrics.persistedBytes.record(log.append(entries, sync));
+                knownPosition = log.position();
+            }
+            catch(IOException ioe) {
+                metrics.errors.increment();
+                throw ioe;
+            }
+            metrics.persist.recordSince(start);
+        }
+        if (rewrite) {
+            snapshots.schedule();
+        }
+    }
+
+    protected void logMutation(char operation, E entity) {
+        logMutations(operation, Collections.singletonList(entity));
+    }
+
+    /**
+     * Queues one log entry per entity, followed by a checkpoint once the log is full.
+     */
+    protected void logMutations(char operation, List<E> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        List<String> entries = new ArrayList<>(changed.size());
+        for (E entity : changed) {
+            try {
+                entries.add(WriteAheadLog.entry(operation, formatElement(entity)));
+            }
+            catch(XMLStreamException xse) {
+                xse.printStackTrace();
+            }
+        }
+        queue.appendAll(entries);
+        if (log.size() + queue.size() >= checkpointInterval) {
+            queue.rewrite();
+        }
+    }
+
+    /**
+     * Writes the queued changes and waits for the requested snapshots.
+     */
+    @Override
+    public void flush() {
+        queue.flush();
+        snapshots.await();
+    }
+
+    /**
+     * Writes the pending changes into the XML file, so that other tools reading it find them,
+     * and stops watching the files.
+     */
+    @Override
+    public void close() {
+        if (loaded) {
+            queue.flush();
+            if (log.size() > 0 || !new File(XMLfilename).exists()) {
+                snapshots.schedule();
+            }
+        }
+        super.close();
+        setWatched(false);
+    }
+
+    private String getFileStamp() {
+        File file = new File(XMLfilename);
+        return file.length() + " " + file.lastModified();
+    }
+
+    private String formatElement(E entity) throws XMLStreamException {
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out);
+        writeEntityToStream(entity, writer);
+        writer.close();
+
+        // one entry per line: line breaks inside values are kept as character references
+        return out.toString().replace("\r", "&#13;").replace("\n", "&#10;");
+    }
+
+    protected Element createElement(Document XMLdocument, String tag, String value) {
+        Element element = XMLdocument.createElement(tag);
+        element.setTextContent(value);
+        return element;
+    }
+
+    protected void writeElement(XMLStreamWriter writer, String tag, String value) throws XMLStreamException {
+        writer.writeStartElement(tag);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    @Override
+    protected synchronized E doSave(E entity) throws AlreadyExistsException, ValidationException {
+        E result = super.doSave(entity);
+        logMutation(SAVE, entity);
+
+        return result;
+    }
+
+    @Override
+    protected synchronized E doDelete(ID id) {
+        E result = super.doDelete(id);
+        if (result != null) {
+            logMutation(DELETE, result);
+        }
+
+        return result;
+    }
+
+    @Override
+    protected synchronized E doUpdate(E newEntity) {
+        E result = super.doUpdate(newEntity);
+        if (result != null) {
+            logMutation(UPDATE, newEntity);
+        }
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<E> doSaveAll(Iterable<E> newEntities) {
+        BulkResult<E> result = super.doSaveAll(newEntities);
+        logMutations(SAVE, result.getSucceeded());
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<ID> doDeleteAll(Iterable<ID> ids) {
+        List<E> removed = new ArrayList<>();
+        BulkResult<ID> result = deleteAll(ids, removed);
+        logMutations(DELETE, removed);
+
+        return result;
+    }
+
+    @Override
+    protected synchronized BulkResult<E> doUpdateAll(Iterable<E> newEntities) {
+        BulkResult<E> result = super.doUpdateAll(newEntities);
+        logMutations(UPDATE, result.getSucceeded());
+
+        return result;
+    }
+}
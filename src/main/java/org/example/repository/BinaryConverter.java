@@ -0,0 +1,61 @@
+package org.example.repository;
+
+import org.example.domain.HasID;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.example.validation.TemaValidator;
+
+/**
+ * Copies a text or XML store into the binary format.
+ * Usage: BinaryConverter studenti|teme|note sursa destinatie, where a source ending in .xml or .xml.gz
+ * is read as XML and any other source as text.
+ */
+public class BinaryConverter {
+    private BinaryConverter() {
+    }
+
+    /**
+     * Saves every entity of the source into the target and writes them out.
+     * @return the saved entities and those rejected, because they are invalid or their ID is already in the target
+     */
+    public static <ID, E extends HasID<ID>> BulkResult<E> convert(CRUDRepository<ID, E> source,
+                                                                  AbstractBinaryRepository<ID, E> target) {
+        BulkResult<E> result = target.saveAll(source.findAll());
+        target.flush();
+        return result;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Utilizare: BinaryConverter studenti|teme|note sursa destinatie");
+            return;
+        }
+        String source = args[1];
+        boolean xml = source.endsWith(".xml") || source.endsWith(".xml" + Compression.EXTENSION);
+        BulkResult<?> result;
+
+        switch (args[0]) {
+            case RepositoryContext.STUDENTI:
+                result = convert(xml ? new StudentXMLRepository(new StudentValidator(), source)
+                                : new StudentFileRepository(new StudentValidator(), source),
+                        new StudentBinaryRepository(new StudentValidator(), args[2]));
+                break;
+            case RepositoryContext.TEME:
+                result = convert(xml ? new TemaXMLRepository(new TemaValidator(), source)
+                                : new TemaFileRepository(new TemaValidator(), source),
+                        new TemaBinaryRepository(new TemaValidator(), args[2]));
+                break;
+            case RepositoryContext.NOTE:
+                result = convert(xml ? new NotaXMLRepository(new NotaValidator(), source)
+                                : new NotaFileRepository(new NotaValidator(), source),
+                        new NotaBinaryRepository(new NotaValidator(), args[2]));
+                break;
+            default:
+                System.out.println("Tip de entitati necunoscut: " + args[0]);
+                return;
+        }
+
+        System.out.println("Entitati convertite: " + result.getSucceeded().size()
+                + ", esuate: " + result.getFailed().size());
+    }
+}
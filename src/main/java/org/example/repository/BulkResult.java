@@ -0,0 +1,48 @@
+package org.example.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-item report of a bulk repository operation.
+ * @param <T> - the type of the items given to the operation
+ */
+public class BulkResult<T> {
+    public static class Failure<T> {
+        private final T item;
+        private final Exception cause;
+
+        public Failure(T item, Exception cause) {
+            this.item = item;
+            this.cause = cause;
+        }
+
+        public T getItem() { return item; }
+
+        public Exception getCause() { return cause; }
+
+        @Override
+        public String toString() {
+            return item + ": " + cause.getMessage();
+        }
+    }
+
+    private final List<T> succeeded = new ArrayList<>();
+    private final List<Failure<T>> failed = new ArrayList<>();
+
+    public void addSuccess(T item) { succeeded.add(item); }
+
+    public void addFailure(T item, Exception cause) { failed.add(new Failure<>(item, cause)); }
+
+    public List<T> getSucceeded() { return Collections.unmodifiableList(succeeded); }
+
+    public List<Failure<T>> getFailed() { return Collections.unmodifiableList(failed); }
+
+    public boolean isSuccessful() { return failed.isEmpty(); }
+
+    @Override
+    public String toString() {
+        return "BulkResult{" + "succeeded=" + succeeded.size() + ", failed=" + failed + '}';
+    }
+}
@@ -1,40 +1,106 @@
-package org.example.repository;
-import org.example.validation.*;
-
-public interface CRUDRepository<ID, E> {
-    /**
-     * @param id - the id of the entity to be returned; id must not be null
-     * @return the entity with the specified id or null - if there is no entity with the given id
-     * @throws IllegalArgumentException if id is null.
-     **/
-    E findOne(ID id);
-
-    /**
-     * @return all entities
-     **/
-    Iterable<E> findAll();
-
-    /**
-     * @param entity; entity must be not null
-     * @return null- if the given entity is saved; otherwise returns the entity (id already exists)
-     * @throws ValidationException if the entity is not valid
-     * @throws IllegalArgumentException if the given entity is null.
-     **/
-    E save(E entity) throws ValidationException, AlreadyExistsException;
-
-    /**
-     * removes the entity with the specified id
-     * @param id; id must be not null
-     * @return the removed entity or null if there is no entity with the given id
-     * @throws IllegalArgumentException if the given id is null.
-     **/
-    E delete(ID id);
-
-    /**
-     * @param entity; entity must not be null
-     * @return null - if the entity is updated, otherwise returns the entity - (e.g id does not exist).
-     * @throws IllegalArgumentException if the given entity is null.
-     * @throws ValidationException if the entity is not valid.
-     **/
-    E update(E entity);
-}
+package org.example.repository;
+import org.example.validation.*;
+
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public interface CRUDRepository<ID, E> extends AutoCloseable {
+    /**
+     * @param id - the id of the entity to be returned; id must not be null
+     * @return the entity with the specified id or null - if there is no entity with the given id
+     * @throws IllegalArgumentException if id is null.
+     **/
+    E findOne(ID id);
+
+    /**
+     * @return all entities
+     **/
+    Iterable<E> findAll();
+
+    /**
+     * @return a stream of all entities; the repositories back it with a sized spliterator
+     * that splits evenly, so that parallel streams balance the work between their threads
+     **/
+    default Stream<E> stream() {
+        return StreamSupport.stream(findAll().spliterator(), false);
+    }
+
+    /**
+     * @param offset - the number of entities to skip, in the order of findAll
+     * @param limit - the maximum number of entities returned
+     * @return the entities of the page; the pages may overlap or miss entities if the repository
+     * changes between the calls, which findAfter avoids
+     * @throws IllegalArgumentException if offset or limit is negative.
+     **/
+    default List<E> findPage(int offset, int limit) {
+        return Pages.page(stream(), offset, limit);
+    }
+
+    /**
+     * @param lastId - the id of the last entity of the previous page, null for the first page
+     * @param limit - the maximum number of entities returned
+     * @return the entities with the smallest ids greater than lastId, in ascending order of their ids
+     * @throws IllegalArgumentException if limit is negative.
+     **/
+    List<E> findAfter(ID lastId, int limit);
+
+    /**
+     * @param entity; entity must be not null
+     * @return null- if the given entity is saved; otherwise returns the entity (id already exists)
+     * @throws ValidationException if the entity is not valid
+     * @throws IllegalArgumentException if the given entity is null.
+     **/
+    E save(E entity) throws ValidationException, AlreadyExistsException;
+
+    /**
+     * removes the entity with the specified id
+     * @param id; id must be not null
+     * @return the removed entity or null if there is no entity with the given id
+     * @throws IllegalArgumentException if the given id is null.
+     **/
+    E delete(ID id);
+
+    /**
+     * @param entity; entity must not be null
+     * @return null - if the entity is updated, otherwise returns the entity - (e.g id does not exist).
+     * @throws IllegalArgumentException if the given entity is null.
+     * @throws ValidationException if the entity is not valid.
+     **/
+    E update(E entity);
+
+    /**
+     * validates every entity first, then saves the valid ones and persists them in a single pass
+     * @param entities; the entities to be saved
+     * @return the saved entities and, for every other entity, the reason it was not saved
+     * (ValidationException, AlreadyExistsException or IllegalArgumentException for a null entity)
+     **/
+    BulkResult<E> saveAll(Iterable<E> entities);
+
+    /**
+     * removes the entities with the specified ids and persists the removal in a single pass
+     * @param ids; the ids of the entities to be removed
+     * @return the removed ids and, for every other id, the reason it was not removed
+     * (IllegalArgumentException for a null id, NoSuchElementException if there is no entity with that id)
+     **/
+    BulkResult<ID> deleteAll(Iterable<ID> ids);
+
+    /**
+     * validates every entity first, then updates the valid ones and persists them in a single pass
+     * @param entities; the new versions of the entities
+     * @return the updated entities and, for every other entity, the reason it was not updated
+     * (ValidationException, IllegalArgumentException for a null entity, NoSuchElementException if it does not exist)
+     **/
+    BulkResult<E> updateAll(Iterable<E> entities);
+
+    /**
+     * writes every pending change to the underlying storage
+     **/
+    void flush();
+
+    /**
+     * flushes the pending changes; the repository should not be used afterwards
+     **/
+    @Override
+    void close();
+}
@@ -0,0 +1,506 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.metrics.MetricsRegistry;
+import org.example.validation.AlreadyExistsException;
+import org.example.validation.ValidationException;
+import org.example.validation.Validator;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * In-memory grade repository that stores the grades column-wise instead of as Nota objects:
+ * the student and assignment IDs are dictionary-encoded into int columns, next to a double column
+ * of grades, an int column of weeks and a column of feedback references. A grade takes under 60 bytes
+ * plus its feedback, against more than 250 bytes for a Nota in the HashMap of NotaRepository.
+ * Lookups go through an open-addressing index on the packed (student, assignment) codes.
+ * The codes of IDs no grade uses any more are freed and reused.
+ * The Nota objects returned are views materialized on demand: changing them does not change the repository.
+ * Every public operation is timed, like the operations of AbstractCRUDRepository.
+ */
+public class ColumnarNotaRepository implements CRUDRepository<Pair<String, String>, Nota> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Validator<Nota> validator;
+    private final IdDictionary studenti = new IdDictionary();
+    private final IdDictionary teme = new IdDictionary();
+    private final LongIntHashMap index = new LongIntHashMap();
+
+    private int[] student = new int[INITIAL_CAPACITY];
+    private int[] tema = new int[INITIAL_CAPACITY];
+    private double[] nota = new double[INITIAL_CAPACITY];
+    private int[] saptamana = new int[INITIAL_CAPACITY];
+    private String[] feedback = new String[INITIAL_CAPACITY];
+    private int size;
+    private int modifications;
+    private volatile RepositoryMetrics metrics = new RepositoryMetrics(MetricsRegistry.shared(), getClass().getSimpleName());
+
+    public ColumnarNotaRepository(Validator<Nota> validator) {
+        this.validator = validator;
+    }
+
+    public MetricsRegistry getMetricsRegistry() { return metrics.registry; }
+
+    /**
+     * @param registry - registry the operations of the repository are recorded to,
+     *                 under the simple name of its class
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        metrics = new RepositoryMetrics(registry, getClass().getSimpleName());
+    }
+
+    private static long key(int student, int tema) {
+        return ((long) student << 32) | (tema & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the row of the grade, or -1 if there is none
+     */
+    private int rowOf(Pair<String, String> id) {
+        return rowOf(id.getObject1(), id.getObject2());
+    }
+
+    private int rowOf(String idStudent, String idTema) {
+        int studentCode = studenti.codeOf(idStudent);
+        int temaCode = teme.codeOf(idTema);
+        if (studentCode < 0 || temaCode < 0) {
+            return -1;
+        }
+        return index.get(key(studentCode, temaCode));
+    }
+
+    private Nota materialize(int row) {
+        return new Nota(new Pair<>(studenti.decode(student[row]), teme.decode(tema[row])),
+                nota[row], saptamana[row], feedback[row]);
+    }
+
+    private void write(int row, Nota entity) {
+        nota[row] = entity.getNota();
+        saptamana[row] = entity.getSaptamanaPredare();
+        feedback[row] = entity.getFeedback();
+    }
+
+    private void append(Nota entity) {
+        if (size == nota.length) {
+            int capacity = size << 1;
+            student = Arrays.copyOf(student, capacity);
+            tema = Arrays.copyOf(tema, capacity);
+            nota = Arrays.copyOf(nota, capacity);
+            saptamana = Arrays.copyOf(saptamana, capacity);
+            feedback = Arrays.copyOf(feedback, capacity);
+        }
+
+        student[size] = studenti.acquire(entity.getID().getObject1());
+        tema[size] = teme.acquire(entity.getID().getObject2());
+        write(size, entity);
+        index.put(key(student[size], tema[size]), size);
+        size++;
+        modifications++;
+    }
+
+    /**
+     * Removes a row by moving the last row into its place, so the columns stay dense.
+     */
+    private void removeRow(int row) {
+        index.remove(key(student[row], tema[row]));
+        studenti.release(student[row]);
+        teme.release(tema[row]);
+        int last = --size;
+        if (row != last) {
+            student[row] = student[last];
+            tema[row] = tema[last];
+            nota[row] = nota[last];
+            saptamana[row] = saptamana[last];
+            feedback[row] = feedback[last];
+            index.put(key(student[row], tema[row]), row);
+        }
+        feedback[last] = null;
+        modifications++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public Nota findOne(Pair<String, String> id) {
+        long start = metrics.start();
+        try {
+            return doFindOne(id);
+        } finally {
+            metrics.findOne.recordSince(start);
+        }
+    }
+
+    private synchronized Nota doFindOne(Pair<String, String> id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID-ul nu poate fi null! \n");
+        }
+        int row = rowOf(id);
+        return row < 0 ? null : materialize(row);
+    }
+
+    /**
+     * Same as findOne(new Pair<>(idStudent, idTema)), without allocating the key.
+     */
+    public Nota findOne(String idStudent, String idTema) {
+        long start = metrics.start();
+        try {
+            synchronized (this) {
+                int row = rowOf(idStudent, idTema);
+                return row < 0 ? null : materialize(row);
+            }
+        } finally {
+            metrics.findOne.recordSince(start);
+        }
+    }
+
+    /**
+     * @return the grades, materialized one at a time during the iteration;
+     * the iteration fails with a ConcurrentModificationException if the repository changes meanwhile
+     */
+    @Override
+    public Iterable<Nota> findAll() {
+        long start = metrics.start();
+        try {
+            return this::rowIterator;
+        } finally {
+            metrics.findAll.recordSince(start);
+        }
+    }
+
+    private Iterator<Nota> rowIterator() {
+        return new Iterator<Nota>() {
+            private final int expectedModifications = modifications;
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                synchronized (ColumnarNotaRepository.this) {
+                    return row < size;
+                }
+            }
+
+            @Override
+            public Nota next() {
+                synchronized (ColumnarNotaRepository.this) {
+                    if (modifications != expectedModifications) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (row >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return materialize(row++);
+                }
+            }
+        };
+    }
+
+    /**
+     * The stream is backed by a spliterator over ranges of rows, split in halves for parallel streams;
+     * like findAll, it materializes the grades one at a time and fails if the repository changes meanwhile.
+     */
+    @Override
+    public Stream<Nota> stream() {
+        long start = metrics.start();
+        try {
+            return rowStream();
+        } finally {
+            metrics.stream.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Nota> findPage(int offset, int limit) {
+        long start = metrics.start();
+        try {
+            return Pages.page(rowStream(), offset, limit);
+        } finally {
+            metrics.findPage.recordSince(start);
+        }
+    }
+
+    private Stream<Nota> rowStream() {
+        return StreamSupport.stream(() -> {
+            synchronized (this) {
+                return new RowSpliterator(0, size, modifications);
+            }
+        }, RowSpliterator.CHARACTERISTICS, false);
+    }
+
+    private final class RowSpliterator implements Spliterator<Nota> {
+        private static final int CHARACTERISTICS = Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+
+        private int row;
+        private final int end;
+        private final int expectedModifications;
+
+        private RowSpliterator(int row, int end, int expectedModifications) {
+            this.row = row;
+            this.end = end;
+            this.expectedModifications = expectedModifications;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Nota> action) {
+            if (row >= end) {
+                return false;
+            }
+            Nota next;
+            synchronized (ColumnarNotaRepository.this) {
+                if (modifications != expectedModifications) {
+                    throw new ConcurrentModificationException();
+                }
+                next = materialize(row++);
+            }
+            action.accept(next);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Nota> trySplit() {
+            int middle = (row + end) >>> 1;
+            if (middle <= row) {
+                return null;
+            }
+            Spliterator<Nota> prefix = new RowSpliterator(row, middle, expectedModifications);
+            row = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - row;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+    }
+
+    /**
+     * Compares the IDs of the rows through the dictionaries and materializes only the grades of the page.
+     */
+    @Override
+    public List<Nota> findAfter(Pair<String, String> lastId, int limit) {
+        long start = metrics.start();
+        try {
+            return doFindAfter(lastId, limit);
+        } finally {
+            metrics.findAfter.recordSince(start);
+        }
+    }
+
+    private synchronized List<Nota> doFindAfter(Pair<String, String> lastId, int limit) {
+        Comparator<Integer> order = Comparator.<Integer, String>comparing(row -> studenti.decode(student[row]))
+                .thenComparing(row -> teme.decode(tema[row]));
+        Iterator<Integer> candidates = IntStream.range(0, size)
+                .filter(row -> lastId == null || compareId(row, lastId) > 0)
+                .iterator();
+
+        List<Nota> page = new ArrayList<>();
+        for (int row : Pages.smallest(candidates, order, limit)) {
+            page.add(materialize(row));
+        }
+        return page;
+    }
+
+    private int compareId(int row, Pair<String, String> id) {
+        int result = studenti.decode(student[row]).compareTo(id.getObject1());
+        return result != 0 ? result : teme.decode(tema[row]).compareTo(id.getObject2());
+    }
+
+    /**
+     * @return the grades of the given student, in no particular order
+     */
+    public synchronized List<Nota> findByStudent(String idStudent) {
+        return findWhere(student, studenti.codeOf(idStudent));
+    }
+
+    /**
+     * @return the grades given for the given assignment, in no particular order
+     */
+    public synchronized List<Nota> findByTema(String idTema) {
+        return findWhere(tema, teme.codeOf(idTema));
+    }
+
+    private List<Nota> findWhere(int[] column, int code) {
+        List<Nota> note = new ArrayList<>();
+        if (code < 0) {
+            return note;
+        }
+        for (int row = 0; row < size; row++) {
+            if (column[row] == code) {
+                note.add(materialize(row));
+            }
+        }
+        return note;
+    }
+
+    @Override
+    public Nota save(Nota entity) throws ValidationException, AlreadyExistsException {
+        long start = metrics.start();
+        try {
+            return doSave(entity);
+        } finally {
+            metrics.save.recordSince(start);
+        }
+    }
+
+    private synchronized Nota doSave(Nota entity) throws ValidationException, AlreadyExistsException {
+        validator.validate(entity);
+        if (rowOf(entity.getID()) >= 0) {
+            throw new AlreadyExistsException("Entity already exists");
+        }
+        append(entity);
+
+        return entity;
+    }
+
+    @Override
+    public Nota delete(Pair<String, String> id) {
+        long start = metrics.start();
+        try {
+            return doDelete(id);
+        } finally {
+            metrics.delete.recordSince(start);
+        }
+    }
+
+    private synchronized Nota doDelete(Pair<String, String> id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID-ul nu poate fi nul! \n");
+        }
+        int row = rowOf(id);
+        if (row < 0) {
+            return null;
+        }
+
+        Nota removed = materialize(row);
+        removeRow(row);
+        return removed;
+    }
+
+    @Override
+    public Nota update(Nota entity) {
+        long start = metrics.start();
+        try {
+            return doUpdate(entity);
+        } finally {
+            metrics.update.recordSince(start);
+        }
+    }
+
+    private synchronized Nota doUpdate(Nota entity) {
+        try {
+            validator.validate(entity);
+            int row = rowOf(entity.getID());
+            if (row < 0) {
+                return null;
+            }
+
+            Nota oldEntity = materialize(row);
+            write(row, entity);
+            return oldEntity;
+        } catch (ValidationException ve) {
+            System.out.println("Entitatea nu este valida! \n");
+            return null;
+        }
+    }
+
+    @Override
+    public BulkResult<Nota> saveAll(Iterable<Nota> entities) {
+        long start = metrics.start();
+        try {
+            return doSaveAll(entities);
+        } finally {
+            metrics.saveAll.recordSince(start);
+        }
+    }
+
+    private synchronized BulkResult<Nota> doSaveAll(Iterable<Nota> entities) {
+        BulkResult<Nota> result = new BulkResult<>();
+        for (Nota entity : entities) {
+            try {
+                if (entity == null) {
+                    throw new IllegalArgumentException("Entitatea nu poate fi nula! \n");
+                }
+                doSave(entity);
+                result.addSuccess(entity);
+            } catch (ValidationException | AlreadyExistsException | IllegalArgumentException e) {
+                result.addFailure(entity, e);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BulkResult<Pair<String, String>> deleteAll(Iterable<Pair<String, String>> ids) {
+        long start = metrics.start();
+        try {
+            return doDeleteAll(ids);
+        } finally {
+            metrics.deleteAll.recordSince(start);
+        }
+    }
+
+    private synchronized BulkResult<Pair<String, String>> doDeleteAll(Iterable<Pair<String, String>> ids) {
+        BulkResult<Pair<String, String>> result = new BulkResult<>();
+        for (Pair<String, String> id : ids) {
+            if (id == null) {
+                result.addFailure(null, new IllegalArgumentException("ID-ul nu poate fi nul! \n"));
+            } else if (doDelete(id) == null) {
+                result.addFailure(id, new NoSuchElementException("Entitatea nu exista! \n"));
+            } else {
+                result.addSuccess(id);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BulkResult<Nota> updateAll(Iterable<Nota> entities) {
+        long start = metrics.start();
+        try {
+            return doUpdateAll(entities);
+        } finally {
+            metrics.updateAll.recordSince(start);
+        }
+    }
+
+    private synchronized BulkResult<Nota> doUpdateAll(Iterable<Nota> entities) {
+        BulkResult<Nota> result = new BulkResult<>();
+        for (Nota entity : entities) {
+            try {
+                if (entity == null) {
+                    throw new IllegalArgumentException("Entitatea nu poate fi nula! \n");
+                }
+                validator.validate(entity);
+                int row = rowOf(entity.getID());
+                if (row < 0) {
+                    throw new NoSuchElementException("Entitatea nu exista! \n");
+                }
+                write(row, entity);
+                result.addSuccess(entity);
+            } catch (ValidationException | IllegalArgumentException | NoSuchElementException e) {
+                result.addFailure(entity, e);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIP streams for the repository files that are kept compressed.
+ * A compressed file is a sequence of GZIP members: a rewrite writes a single member, every append adds
+ * one more, and reading goes through all of them, so the file is never decompressed into memory as a whole.
+ */
+final class Compression {
+    static final String EXTENSION = ".gz";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * A GZIP stream that releases its deflater once the member is finished, so it does not have
+     * to be closed when the underlying stream must stay open.
+     */
+    private static final class MemberOutputStream extends GZIPOutputStream {
+        private MemberOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            super.finish();
+            def.end();
+        }
+    }
+
+    private Compression() {
+    }
+
+    static boolean isCompressed(String filename) {
+        return filename.endsWith(EXTENSION);
+    }
+
+    static InputStream input(InputStream in, boolean compressed) throws IOException {
+        return compressed ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+    }
+
+    static OutputStream output(OutputStream out, boolean compressed) throws IOException {
+        return compressed ? new MemberOutputStream(out) : out;
+    }
+
+    /**
+     * Writes out everything written to the stream and ends its GZIP member, without closing the underlying stream.
+     */
+    static void finish(OutputStream out) throws IOException {
+        if (out instanceof MemberOutputStream) {
+            ((MemberOutputStream) out).finish();
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.repository;
+
+/**
+ * Receives every change made to the entities of a repository, including the ones made while loading.
+ */
+public interface EntityListener<E> {
+    /**
+     * @param oldEntity - the entity that was removed or replaced; null if newEntity was added
+     * @param newEntity - the entity that was added or replaced oldEntity; null if oldEntity was removed
+     */
+    void entityChanged(E oldEntity, E newEntity);
+}
@@ -0,0 +1,108 @@
+package org.example.repository;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches the directories of the stores with a WatchService, on a shared daemon thread, and tells the
+ * repositories when one of their files was created, modified or replaced, so that they read the changes
+ * on their next access instead of checking the files on every access.
+ * The changes a repository makes itself are reported too; the repository recognizes and skips them.
+ */
+final class FileWatcher {
+    private static final FileWatcher SHARED = new FileWatcher();
+
+    /**
+     * Stops the watching when closed.
+     */
+    interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Map<Path, List<Runnable>> listeners = new HashMap<>();
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private WatchService service;
+
+    private FileWatcher() {
+    }
+
+    static FileWatcher shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param onChange - called on the watcher thread; must return quickly
+     */
+    synchronized Registration watch(Runnable onChange, String... files) throws IOException {
+        if (service == null) {
+            service = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(this::run, "repository-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        List<Path> paths = new ArrayList<>();
+        for (String file : files) {
+            Path path = Paths.get(file).toAbsolutePath().normalize();
+            Path directory = path.getParent();
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+            }
+            listeners.computeIfAbsent(path, key -> new CopyOnWriteArrayList<>()).add(onChange);
+            paths.add(path);
+        }
+        return () -> unwatch(onChange, paths);
+    }
+
+    private synchronized void unwatch(Runnable onChange, List<Path> paths) {
+        for (Path path : paths) {
+            List<Runnable> watching = listeners.get(path);
+            if (watching != null && watching.remove(onChange) && watching.isEmpty()) {
+                listeners.remove(path);
+            }
+        }
+    }
+
+    private synchronized List<Runnable> listenersOf(Path directory, Path file) {
+        List<Runnable> found = new ArrayList<>();
+        for (Map.Entry<Path, List<Runnable>> entry : listeners.entrySet()) {
+            if (entry.getKey().getParent().equals(directory) && (file == null || entry.getKey().equals(file))) {
+                found.addAll(entry.getValue());
+            }
+        }
+        return found;
+    }
+
+    private void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                // after an overflow any file of the directory may have changed
+                Path file = event.kind() == StandardWatchEventKinds.OVERFLOW ? null
+                        : directory.resolve((Path) event.context());
+                for (Runnable listener : listenersOf(directory, file)) {
+                    try {
+                        listener.run();
+                    } catch (RuntimeException re) {
+                        re.printStackTrace();
+                    }
+                }
+            }
+            key.reset();
+        }
+    }
+}
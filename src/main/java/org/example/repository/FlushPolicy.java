@@ -0,0 +1,59 @@
+package org.example.repository;
+
+/**
+ * Decides when the changes queued by a repository are written to disk.
+ * A commit happens as soon as any of the enabled limits is reached; a limit of 0 is disabled.
+ */
+public class FlushPolicy {
+    /**
+     * Every change is written as soon as it is made, without forcing it to the device.
+     */
+    public static final FlushPolicy IMMEDIATE = new FlushPolicy(0, 1, 0, false);
+
+    private final long maxDelayMillis;
+    private final int maxRecords;
+    private final long maxBytes;
+    private final boolean sync;
+
+    /**
+     * @param maxDelayMillis - longest time a change may wait in the queue
+     * @param maxRecords - number of queued changes that triggers a commit
+     * @param maxBytes - size of the queued changes that triggers a commit
+     * @param sync - whether every commit is forced to the storage device (fsync)
+     * @throws IllegalArgumentException if a limit is negative or every limit is disabled
+     */
+    public FlushPolicy(long maxDelayMillis, int maxRecords, long maxBytes, boolean sync) {
+        if (maxDelayMillis < 0 || maxRecords < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Limitele nu pot fi negative! \n");
+        }
+        if (maxDelayMillis == 0 && maxRecords == 0 && maxBytes == 0) {
+            throw new IllegalArgumentException("Cel putin o limita trebuie setata! \n");
+        }
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.sync = sync;
+    }
+
+    /**
+     * Group commit: changes are coalesced for up to maxDelayMillis, or until maxRecords or maxBytes
+     * are queued, and each commit is a single write followed by an fsync.
+     */
+    public static FlushPolicy groupCommit(long maxDelayMillis, int maxRecords, long maxBytes) {
+        return new FlushPolicy(maxDelayMillis, maxRecords, maxBytes, true);
+    }
+
+    public long getMaxDelayMillis() { return maxDelayMillis; }
+
+    public int getMaxRecords() { return maxRecords; }
+
+    public long getMaxBytes() { return maxBytes; }
+
+    public boolean isSync() { return sync; }
+
+    @Override
+    public String toString() {
+        return "FlushPolicy{" + "maxDelayMillis=" + maxDelayMillis + ", maxRecords=" + maxRecords +
+                ", maxBytes=" + maxBytes + ", sync=" + sync + '}';
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Student;
+
+import java.util.*;
+
+/**
+ * Grade statistics per student, per assignment and per group, kept up to date as grades and students change.
+ * Register getGradeListener with the grades repository and getStudentListener with the students repository;
+ * a grade counts towards the group its student is in at the time of the query.
+ */
+public class GradeAggregates {
+    private final Map<String, Accumulator> byStudent = new HashMap<>();
+    private final Map<String, Accumulator> byTema = new HashMap<>();
+    private final Map<Integer, Accumulator> byGrupa = new HashMap<>();
+    private final Map<String, Integer> grupaOfStudent = new HashMap<>();
+
+    private final EntityListener<Nota> gradeListener = this::gradeChanged;
+    private final EntityListener<Student> studentListener = this::studentChanged;
+
+    /**
+     * Running count and sum, with the grades kept as a multiset for the extrema.
+     */
+    private static final class Accumulator {
+        private long count;
+        private double sum;
+        private final TreeMap<Double, Integer> values = new TreeMap<>();
+
+        private void add(double value, int times) {
+            count += times;
+            sum += value * times;
+            values.merge(value, times, Integer::sum);
+        }
+
+        private void remove(double value, int times) {
+            count -= times;
+            sum -= value * times;
+            values.computeIfPresent(value, (grade, n) -> n <= times ? null : n - times);
+        }
+
+        private GradeStats stats() {
+            return count == 0 ? GradeStats.EMPTY : new GradeStats(count, sum, values.firstKey(), values.lastKey());
+        }
+    }
+
+    public EntityListener<Nota> getGradeListener() { return gradeListener; }
+
+    public EntityListener<Student> getStudentListener() { return studentListener; }
+
+    private synchronized void gradeChanged(Nota oldNota, Nota newNota) {
+        if (oldNota != null) {
+            apply(oldNota, false);
+        }
+        if (newNota != null) {
+            apply(newNota, true);
+        }
+    }
+
+    private void apply(Nota nota, boolean add) {
+        String idStudent = nota.getID().getObject1();
+        update(byStudent, idStudent, nota.getNota(), 1, add);
+        update(byTema, nota.getID().getObject2(), nota.getNota(), 1, add);
+
+        Integer grupa = grupaOfStudent.get(idStudent);
+        if (grupa != null) {
+            update(byGrupa, grupa, nota.getNota(), 1, add);
+        }
+    }
+
+    private static <K> void update(Map<K, Accumulator> aggregates, K key, double value, int times, boolean add) {
+        if (add) {
+            aggregates.computeIfAbsent(key, k -> new Accumulator()).add(value, times);
+            return;
+        }
+
+        Accumulator accumulator = aggregates.get(key);
+        if (accumulator != null) {
+            accumulator.remove(value, times);
+            // dropping empty aggregates also drops the rounding errors of their sums
+            if (accumulator.count == 0) {
+                aggregates.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Moves the grades of a student between groups when the student is added, removed or changes group.
+     */
+    private synchronized void studentChanged(Student oldStudent, Student newStudent) {
+        Integer oldGrupa = oldStudent == null ? null : oldStudent.getGrupa();
+        Integer newGrupa = newStudent == null ? null : newStudent.getGrupa();
+        if (Objects.equals(oldGrupa, newGrupa)) {
+            return;
+        }
+
+        String idStudent = newStudent != null ? newStudent.getID() : oldStudent.getID();
+        Accumulator grades = byStudent.get(idStudent);
+        if (oldGrupa != null) {
+            grupaOfStudent.remove(idStudent);
+            moveGrades(grades, oldGrupa, false);
+        }
+        if (newGrupa != null) {
+            grupaOfStudent.put(idStudent, newGrupa);
+            moveGrades(grades, newGrupa, true);
+        }
+    }
+
+    private void moveGrades(Accumulator grades, int grupa, boolean add) {
+        if (grades != null) {
+            new ArrayList<>(grades.values.entrySet())
+                    .forEach(grade -> update(byGrupa, grupa, grade.getKey(), grade.getValue(), add));
+        }
+    }
+
+    public synchronized GradeStats getStudentStats(String idStudent) {
+        return stats(byStudent, idStudent);
+    }
+
+    public synchronized GradeStats getTemaStats(String idTema) {
+        return stats(byTema, idTema);
+    }
+
+    public synchronized GradeStats getGrupaStats(int grupa) {
+        return stats(byGrupa, grupa);
+    }
+
+    private static <K> GradeStats stats(Map<K, Accumulator> aggregates, K key) {
+        Accumulator accumulator = aggregates.get(key);
+        return accumulator == null ? GradeStats.EMPTY : accumulator.stats();
+    }
+
+    /**
+     * Recomputes every aggregate from scratch and compares it with the maintained one.
+     * Meant for tests and debugging: the repositories must not change meanwhile.
+     * @return a description of every aggregate that differs, empty if they all match
+     */
+    public synchronized List<String> verify(Iterable<Nota> note, Iterable<Student> studenti) {
+        GradeAggregates recomputed = new GradeAggregates();
+        studenti.forEach(student -> recomputed.studentChanged(null, student));
+        note.forEach(nota -> recomputed.gradeChanged(null, nota));
+
+        List<String> differences = new ArrayList<>();
+        compare("student", byStudent, recomputed.byStudent, differences);
+        compare("tema", byTema, recomputed.byTema, differences);
+        compare("grupa", byGrupa, recomputed.byGrupa, differences);
+        return differences;
+    }
+
+    private static <K> void compare(String kind, Map<K, Accumulator> maintained, Map<K, Accumulator> recomputed,
+                                    List<String> differences) {
+        Set<K> keys = new HashSet<>(maintained.keySet());
+        keys.addAll(recomputed.keySet());
+        for (K key : keys) {
+            GradeStats expected = stats(recomputed, key);
+            GradeStats actual = stats(maintained, key);
+            if (!actual.matches(expected)) {
+                differences.add(kind + " " + key + ": " + actual + " in loc de " + expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.repository;
+
+/**
+ * Count, sum and extrema of a set of grades.
+ */
+public final class GradeStats {
+    public static final GradeStats EMPTY = new GradeStats(0, 0, Double.NaN, Double.NaN);
+
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    public GradeStats(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() { return count; }
+
+    public double getSum() { return sum; }
+
+    /**
+     * @return the lowest grade, NaN if there are none
+     */
+    public double getMin() { return min; }
+
+    /**
+     * @return the highest grade, NaN if there are none
+     */
+    public double getMax() { return max; }
+
+    /**
+     * @return the average grade, NaN if there are none
+     */
+    public double getAverage() { return count == 0 ? Double.NaN : sum / count; }
+
+    /**
+     * Sums are kept incrementally, so they are compared with a tolerance for the rounding errors.
+     */
+    public boolean matches(GradeStats other) {
+        return count == other.count
+                && Math.abs(sum - other.sum) <= 1e-9 * Math.max(1, Math.abs(sum))
+                && Double.compare(min, other.min) == 0
+                && Double.compare(max, other.max) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "GradeStats{" +
+                "numar = " + count +
+                ", medie = " + getAverage() +
+                ", minim = " + min +
+                ", maxim = " + max +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense int codes, starting at 0, to String IDs. Every code counts the references taken with acquire;
+ * once they are all released the ID is forgotten and its code is reused, so the dictionary holds only the IDs
+ * still in use however many come and go.
+ */
+public class IdDictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final Deque<Integer> free = new ArrayDeque<>();
+    private int[] references = new int[16];
+
+    /**
+     * @return the code of the ID, or -1 if it has none
+     */
+    public int codeOf(String id) {
+        Integer code = codes.get(id);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Takes a reference to the ID, assigning it a free code if it has none.
+     * @return the code of the ID
+     */
+    public int acquire(String id) {
+        Integer code = codes.get(id);
+        if (code == null) {
+            if (free.isEmpty()) {
+                code = ids.size();
+                ids.add(id);
+                if (code == references.length) {
+                    references = Arrays.copyOf(references, code << 1);
+                }
+            } else {
+                code = free.pop();
+                ids.set(code, id);
+            }
+            codes.put(id, code);
+        }
+        references[code]++;
+        return code;
+    }
+
+    /**
+     * Drops a reference taken with acquire; the last one frees the code.
+     */
+    public void release(int code) {
+        if (--references[code] == 0) {
+            codes.remove(ids.get(code));
+            ids.set(code, null);
+            free.push(code);
+        }
+    }
+
+    public String decode(int code) {
+        return ids.get(code);
+    }
+
+    /**
+     * @return the number of IDs in use
+     */
+    public int size() {
+        return codes.size();
+    }
+}
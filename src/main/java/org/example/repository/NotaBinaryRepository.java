@@ -0,0 +1,48 @@
+package org.example.repository;
+import org.example.domain.*;
+import org.example.validation.*;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class NotaBinaryRepository extends AbstractBinaryRepository<Pair<String, String>, Nota> {
+    private final NotaIndex index = new NotaIndex();
+
+    public NotaBinaryRepository(Validator<Nota> validator, String filename) {
+        super(validator, filename, 'N');
+        addListener(index);
+    }
+
+    /**
+     * Same as findOne(new Pair<>(idStudent, idTema)), without allocating the key.
+     */
+    public Nota findOne(String idStudent, String idTema) {
+        ensureLoaded();
+        return index.find(idStudent, idTema);
+    }
+
+    public List<Nota> findByStudent(String idStudent) {
+        ensureLoaded();
+        return index.findByStudent(idStudent);
+    }
+
+    public List<Nota> findByTema(String idTema) {
+        ensureLoaded();
+        return index.findByTema(idTema);
+    }
+
+    protected void writeEntity(Nota nota, DataOutput out) throws IOException {
+        writeString(out, nota.getID().getObject1());
+        writeString(out, nota.getID().getObject2());
+        out.writeDouble(nota.getNota());
+        out.writeInt(nota.getSaptamanaPredare());
+        writeString(out, nota.getFeedback());
+    }
+
+    protected Nota readEntity(ByteBuffer in) {
+        Pair<String, String> id = new Pair<>(readString(in), readString(in));
+        return new Nota(id, in.getDouble(), in.getInt(), readString(in));
+    }
+}
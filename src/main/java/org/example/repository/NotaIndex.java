@@ -0,0 +1,81 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+
+import java.util.*;
+
+/**
+ * Secondary indexes of the grades by student and by assignment, kept up to date as an EntityListener.
+ * Lookups may run on other threads than the changes of the repository.
+ * Single grades are also indexed by their student and assignment IDs, dictionary-encoded into a packed long,
+ * so they can be found without building a Pair; every indexed grade holds a reference to its two codes,
+ * so the dictionaries forget the IDs no grade uses any more.
+ */
+public class NotaIndex implements EntityListener<Nota> {
+    private final IdDictionary studenti = new IdDictionary();
+    private final IdDictionary teme = new IdDictionary();
+    private final LongHashMap<Nota> byKey = new LongHashMap<>();
+    private final Map<String, Map<Pair<String, String>, Nota>> byStudent = new HashMap<>();
+    private final Map<String, Map<Pair<String, String>, Nota>> byTema = new HashMap<>();
+
+    @Override
+    public synchronized void entityChanged(Nota oldNota, Nota newNota) {
+        if (oldNota != null) {
+            remove(byStudent, oldNota.getID().getObject1(), oldNota);
+            remove(byTema, oldNota.getID().getObject2(), oldNota);
+            int student = studenti.codeOf(oldNota.getID().getObject1());
+            int tema = teme.codeOf(oldNota.getID().getObject2());
+            byKey.remove(key(student, tema));
+            studenti.release(student);
+            teme.release(tema);
+        }
+        if (newNota != null) {
+            byKey.put(key(studenti.acquire(newNota.getID().getObject1()), teme.acquire(newNota.getID().getObject2())), newNota);
+            byStudent.computeIfAbsent(newNota.getID().getObject1(), id -> new HashMap<>()).put(newNota.getID(), newNota);
+            byTema.computeIfAbsent(newNota.getID().getObject2(), id -> new HashMap<>()).put(newNota.getID(), newNota);
+        }
+    }
+
+    private static long key(int student, int tema) {
+        return ((long) student << 32) | (tema & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Looks the grade up without allocating.
+     * @return the grade given to the student for the assignment, or null
+     */
+    public synchronized Nota find(String idStudent, String idTema) {
+        int student = studenti.codeOf(idStudent);
+        int tema = teme.codeOf(idTema);
+        if (student < 0 || tema < 0) {
+            return null;
+        }
+        return byKey.get(key(student, tema));
+    }
+
+    private void remove(Map<String, Map<Pair<String, String>, Nota>> index, String key, Nota nota) {
+        Map<Pair<String, String>, Nota> note = index.get(key);
+        if (note != null && note.remove(nota.getID()) != null && note.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * @return the grades of the given student, in no particular order
+     */
+    public synchronized List<Nota> findByStudent(String idStudent) {
+        return copy(byStudent.get(idStudent));
+    }
+
+    /**
+     * @return the grades given for the given assignment, in no particular order
+     */
+    public synchronized List<Nota> findByTema(String idTema) {
+        return copy(byTema.get(idTema));
+    }
+
+    private List<Nota> copy(Map<Pair<String, String>, Nota> note) {
+        return note == null ? new ArrayList<>() : new ArrayList<>(note.values());
+    }
+}
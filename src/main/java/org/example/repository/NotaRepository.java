@@ -1,10 +1,24 @@
-package org.example.repository;
-
-import org.example.domain.*;
-import org.example.validation.*;
-
-public class NotaRepository extends AbstractCRUDRepository<Pair<String, String>, Nota> {
-    public NotaRepository(Validator<Nota> validator) {
-        super(validator);
-    }
-}
+package org.example.repository;
+
+import org.example.domain.*;
+import org.example.validation.*;
+
+import java.util.List;
+
+public class NotaRepository extends AbstractCRUDRepository<Pair<String, String>, Nota> {
+    private final NotaIndex index = new NotaIndex();
+
+    public NotaRepository(Validator<Nota> validator) {
+        super(validator);
+        addListener(index);
+    }
+
+    /**
+     * Same as findOne(new Pair<>(idStudent, idTema)), without allocating the key.
+     */
+    public Nota findOne(String idStudent, String idTema) { return index.find(idStudent, idTema); }
+
+    public List<Nota> findByStudent(String idStudent) { return index.findByStudent(idStudent); }
+
+    public List<Nota> findByTema(String idTema) { return index.findByTema(idTema); }
+}
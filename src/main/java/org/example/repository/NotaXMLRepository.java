@@ -1,128 +1,216 @@
-package org.example.repository;
-
-import org.example.domain.Nota;
-import org.example.domain.Pair;
-import org.example.domain.Student;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.example.validation.StudentValidator;
-import org.example.validation.TemaValidator;
-import org.example.validation.Validator;
-
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
-
-public class NotaXMLRepository extends AbstractXMLRepository<Pair<String, String>, Nota> {
-
-    public NotaXMLRepository(Validator<Nota> validator, String XMLfilename) {
-        super(validator, XMLfilename);
-        loadFromXmlFile();
-    }
-
-    protected Element getElementFromEntity(Nota nota, Document XMLdocument) {
-        Element element = XMLdocument.createElement("nota");
-        element.setAttribute("IDStudent", nota.getID().getObject1());
-        element.setAttribute("IDTema", nota.getID().getObject2());
-
-        element.appendChild(createElement(XMLdocument, "Nota", String.valueOf(nota.getNota())));
-        element.appendChild(createElement(XMLdocument, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare())));
-        element.appendChild(createElement(XMLdocument, "Feedback", nota.getFeedback()));
-
-        return element;
-    }
-
-    protected Nota getEntityFromNode(Element node) {
-        String IDStudent = node.getAttributeNode("IDStudent").getValue();
-        String IDTema= node.getAttributeNode("IDTema").getValue();
-        double nota = Double.parseDouble(node.getElementsByTagName("Nota").item(0).getTextContent());
-        int saptamanaPredare = Integer.parseInt(node.getElementsByTagName("SaptamanaPredare").item(0).getTextContent());
-        String feedback = node.getElementsByTagName("Feedback").item(0).getTextContent();
-
-        return new Nota(new Pair(IDStudent, IDTema), nota, saptamanaPredare, feedback);
-    }
-
-    public void createFile(Nota notaObj) {
-        String idStudent = notaObj.getID().getObject1();
-        StudentValidator sval = new StudentValidator();
-        TemaValidator tval = new TemaValidator();
-        StudentFileRepository srepo = new StudentFileRepository(sval, "studenti.txt");
-        TemaFileRepository trepo = new TemaFileRepository(tval, "teme.txt");
-
-        Student student = srepo.findOne(idStudent);
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(student.getNume() + ".txt", false))) {
-            super.findAll().forEach(nota -> {
-                if (nota.getID().getObject1().equals(idStudent)) {
-                    try {
-                        bw.write("Tema: " + nota.getID().getObject2() + "\n");
-                        bw.write("Nota: " + nota.getNota() + "\n");
-                        bw.write("Predata in saptamana: " + nota.getSaptamanaPredare() + "\n");
-                        bw.write("Deadline: " + trepo.findOne(nota.getID().getObject2()).getDeadline() + "\n");
-                        bw.write("Feedback: " + nota.getFeedback() + "\n\n");
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-            });
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-        }
-    }
-}
-//    public void createFile(Nota notaObj) {
-//        String idStudent = notaObj.getID().getObject1();
-//        StudentValidator sval = new StudentValidator();
-//        TemaValidator tval = new TemaValidator();
-//        StudentXMLRepository srepo = new StudentXMLRepository(sval, "studenti.xml");
-//        TemaXMLRepository trepo = new TemaXMLRepository(tval, "teme.xml");
-//
-//        Student student = srepo.findOne(idStudent);
-//        try {
-//            Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-//            Element root = XMLdocument.createElement("NoteStudent");
-//            XMLdocument.appendChild(root);
-//
-//            super.findAll().forEach(nota -> {
-//                if (nota.getID().getObject1().equals(idStudent)) {
-//                    try {
-//                        Document XMLstudent = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-//                        Element element = XMLstudent.createElement("nota");
-//
-//                        Document XMLdocument2 = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(trepo.XMLfilename);
-//                        Node n = XMLdocument2.getFirstChild();
-//                        Node temaNode = XMLstudent.importNode(XMLdocument2, true);
-//                        Tema t = trepo.getEntityFromNode((Element) temaNode);
-//
-//                        element.appendChild(createElement(XMLstudent, "Tema", t.getID()));
-//                        element.appendChild(createElement(XMLstudent, "Nota", String.valueOf(nota.getNota())));
-//                        element.appendChild(createElement(XMLstudent, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare())));
-//                        element.appendChild(createElement(XMLstudent, "Deadline", String.valueOf(t.getDeadline())));
-//                        element.appendChild(createElement(XMLstudent, "Feedback", nota.getFeedback()));
-//
-//                        root.appendChild(element);
-//
-//                    } catch (ParserConfigurationException e) {
-//                        e.printStackTrace();
-//                    } catch (SAXException e) {
-//                        e.printStackTrace();
-//                    } catch (IOException e) {
-//                        e.printStackTrace();
-//                    }
-//
-//                }
-//            });
-//
-//            Transformer XMLtransformer = TransformerFactory.newInstance().newTransformer();
-//            XMLtransformer.setOutputProperty(OutputKeys.INDENT, "yes");
-//            XMLtransformer.transform(new DOMSource(XMLdocument), new StreamResult(XMLfilename));
-//        }
-//        catch(ParserConfigurationException pce) {
-//            pce.printStackTrace();
-//        }
-//        catch(TransformerConfigurationException tce) {
-//            tce.printStackTrace();
-//        }
-//        catch(TransformerException te) {
-//            te.printStackTrace();
-//        }
-//    }}
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.domain.Student;
+import org.example.domain.Tema;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.example.validation.StudentValidator;
+import org.example.validation.TemaValidator;
+import org.example.validation.Validator;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+public class NotaXMLRepository extends AbstractXMLRepository<Pair<String, String>, Nota> {
+    private final NotaIndex index = new NotaIndex();
+    private RepositoryContext context = defaultContext();
+
+    public NotaXMLRepository(Validator<Nota> validator, String XMLfilename) {
+        this(validator, XMLfilename, Compression.isCompressed(XMLfilename));
+    }
+
+    public NotaXMLRepository(Validator<Nota> validator, String XMLfilename, boolean compressed) {
+        super(validator, XMLfilename, compressed);
+        addListener(index);
+    }
+
+    /**
+     * The students and assignments of createFile, read from studenti.txt and teme.txt once, on first use.
+     */
+    private static RepositoryContext defaultContext() {
+        RepositoryContext context = new RepositoryContext();
+        context.register(RepositoryContext.STUDENTI, () -> new StudentFileRepository(new StudentValidator(), "studenti.txt"));
+        context.register(RepositoryContext.TEME, () -> new TemaFileRepository(new TemaValidator(), "teme.txt"));
+        return context;
+    }
+
+    public RepositoryContext getContext() { return context; }
+
+    /**
+     * @param context - where createFile looks up the students and the assignments
+     */
+    public void setContext(RepositoryContext context) { this.context = context; }
+
+    /**
+     * Same as findOne(new Pair<>(idStudent, idTema)), without allocating the key.
+     */
+    public Nota findOne(String idStudent, String idTema) {
+        ensureLoaded();
+        return index.find(idStudent, idTema);
+    }
+
+    public List<Nota> findByStudent(String idStudent) {
+        ensureLoaded();
+        return index.findByStudent(idStudent);
+    }
+
+    public List<Nota> findByTema(String idTema) {
+        ensureLoaded();
+        return index.findByTema(idTema);
+    }
+
+    protected Element getElementFromEntity(Nota nota, Document XMLdocument) {
+        Element element = XMLdocument.createElement("nota");
+        element.setAttribute("IDStudent", nota.getID().getObject1());
+        element.setAttribute("IDTema", nota.getID().getObject2());
+
+        element.appendChild(createElement(XMLdocument, "Nota", String.valueOf(nota.getNota())));
+        element.appendChild(createElement(XMLdocument, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare())));
+        element.appendChild(createElement(XMLdocument, "Feedback", nota.getFeedback()));
+
+        return element;
+    }
+
+    protected void writeEntityToStream(Nota nota, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement("nota");
+        writer.writeAttribute("IDStudent", nota.getID().getObject1());
+        writer.writeAttribute("IDTema", nota.getID().getObject2());
+
+        writeElement(writer, "Nota", String.valueOf(nota.getNota()));
+        writeElement(writer, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare()));
+        writeElement(writer, "Feedback", nota.getFeedback());
+
+        writer.writeEndElement();
+    }
+
+    protected Nota getEntityFromNode(Element node) {
+        String IDStudent = node.getAttributeNode("IDStudent").getValue();
+        String IDTema= node.getAttributeNode("IDTema").getValue();
+        double nota = Double.parseDouble(node.getElementsByTagName("Nota").item(0).getTextContent());
+        int saptamanaPredare = Integer.parseInt(node.getElementsByTagName("SaptamanaPredare").item(0).getTextContent());
+        String feedback = node.getElementsByTagName("Feedback").item(0).getTextContent();
+
+        return new Nota(new Pair(intern(IDStudent), intern(IDTema)), nota, saptamanaPredare, intern(feedback));
+    }
+
+    protected Nota getEntityFromStream(XMLStreamReader reader) throws XMLStreamException {
+        String IDStudent = reader.getAttributeValue(null, "IDStudent");
+        String IDTema = reader.getAttributeValue(null, "IDTema");
+        double nota = 0;
+        int saptamanaPredare = 0;
+        String feedback = null;
+
+        while (nextChildElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "Nota":
+                    nota = Double.parseDouble(reader.getElementText());
+                    break;
+                case "SaptamanaPredare":
+                    saptamanaPredare = Integer.parseInt(reader.getElementText());
+                    break;
+                case "Feedback":
+                    feedback = reader.getElementText();
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        return new Nota(new Pair<>(intern(IDStudent), intern(IDTema)), nota, saptamanaPredare, intern(feedback));
+    }
+
+    public void createFile(Nota notaObj) {
+        String idStudent = notaObj.getID().getObject1();
+        CRUDRepository<String, Student> srepo = context.get(RepositoryContext.STUDENTI);
+        CRUDRepository<String, Tema> trepo = context.get(RepositoryContext.TEME);
+
+        Student student = srepo.findOne(idStudent);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(student.getNume() + ".txt", false))) {
+            bw.write(formatReport(findByStudent(idStudent), trepo));
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Formats the report of a student as written by createFile.
+     * @param note - the grades of the student
+     * @param teme - where the deadlines of the assignments are looked up
+     */
+    public static String formatReport(Iterable<Nota> note, CRUDRepository<String, Tema> teme) {
+        StringBuilder report = new StringBuilder();
+        for (Nota nota : note) {
+            Tema tema = teme.findOne(nota.getID().getObject2());
+            report.append("Tema: ").append(nota.getID().getObject2()).append("\n");
+            report.append("Nota: ").append(nota.getNota()).append("\n");
+            report.append("Predata in saptamana: ").append(nota.getSaptamanaPredare()).append("\n");
+            report.append("Deadline: ").append(tema == null ? "-" : String.valueOf(tema.getDeadline())).append("\n");
+            report.append("Feedback: ").append(nota.getFeedback()).append("\n\n");
+        }
+        return report.toString();
+    }
+}
+//    public void createFile(Nota notaObj) {
+//        String idStudent = notaObj.getID().getObject1();
+//        StudentValidator sval = new StudentValidator();
+//        TemaValidator tval = new TemaValidator();
+//        StudentXMLRepository srepo = new StudentXMLRepository(sval, "studenti.xml");
+//        TemaXMLRepository trepo = new TemaXMLRepository(tval, "teme.xml");
+//
+//        Student student = srepo.findOne(idStudent);
+//        try {
+//            Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+//            Element root = XMLdocument.createElement("NoteStudent");
+//            XMLdocument.appendChild(root);
+//
+//            super.findAll().forEach(nota -> {
+//                if (nota.getID().getObject1().equals(idStudent)) {
+//                    try {
+//                        Document XMLstudent = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+//                        Element element = XMLstudent.createElement("nota");
+//
+//                        Document XMLdocument2 = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(trepo.XMLfilename);
+//                        Node n = XMLdocument2.getFirstChild();
+//                        Node temaNode = XMLstudent.importNode(XMLdocument2, true);
+//                        Tema t = trepo.getEntityFromNode((Element) temaNode);
+//
+//                        element.appendChild(createElement(XMLstudent, "Tema", t.getID()));
+//                        element.appendChild(createElement(XMLstudent, "Nota", String.valueOf(nota.getNota())));
+//                        element.appendChild(createElement(XMLstudent, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare())));
+//                        element.appendChild(createElement(XMLstudent, "Deadline", String.valueOf(t.getDeadline())));
+//                        element.appendChild(createElement(XMLstudent, "Feedback", nota.getFeedback()));
+//
+//                        root.appendChild(element);
+//
+//                    } catch (ParserConfigurationException e) {
+//                        e.printStackTrace();
+//                    } catch (SAXException e) {
+//                        e.printStackTrace();
+//                    } catch (IOException e) {
+//                        e.printStackTrace();
+//                    }
+//
+//                }
+//            });
+//
+//            Transformer XMLtransformer = TransformerFactory.newInstance().newTransformer();
+//            XMLtransformer.setOutputProperty(OutputKeys.INDENT, "yes");
+//            XMLtransformer.transform(new DOMSource(XMLdocument), new StreamResult(XMLfilename));
+//        }
+//        catch(ParserConfigurationException pce) {
+//            pce.printStackTrace();
+//        }
+//        catch(TransformerConfigurationException tce) {
+//            tce.printStackTrace();
+//        }
+//        catch(TransformerException te) {
+//            te.printStackTrace();
+//        }
+//    }}
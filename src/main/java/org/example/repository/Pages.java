@@ -0,0 +1,56 @@
+package org.example.repository;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Selection of a page from items in no particular order.
+ */
+final class Pages {
+    private Pages() {
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Pagina invalida! \n");
+        }
+    }
+
+    /**
+     * @return the items after the first offset ones, at most limit of them
+     * @throws IllegalArgumentException if offset or limit is negative.
+     */
+    static <T> List<T> page(Stream<T> items, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Pagina invalida! \n");
+        }
+        return items.skip(offset).limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     * Keeps the page in a bounded heap, so selecting it takes O(n log limit) instead of sorting every item.
+     * @return the limit smallest items, in ascending order
+     */
+    static <T> List<T> smallest(Iterator<T> items, Comparator<? super T> order, int limit) {
+        checkLimit(limit);
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<T> page = new PriorityQueue<>(Math.min(limit, 1024), order.reversed());
+        while (items.hasNext()) {
+            T item = items.next();
+            if (page.size() < limit) {
+                page.add(item);
+            } else if (order.compare(item, page.peek()) < 0) {
+                page.poll();
+                page.add(item);
+            }
+        }
+
+        List<T> sorted = new ArrayList<>(page);
+        sorted.sort(order);
+        return sorted;
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.repository;
+
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.example.validation.TemaValidator;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry owning a single repository instance per store, so repositories that look each other up
+ * share the state already in memory instead of loading the store again.
+ * A store is opened on first use, from the factory it was registered with.
+ */
+public class RepositoryContext implements AutoCloseable {
+    public static final String STUDENTI = "studenti";
+    public static final String TEME = "teme";
+    public static final String NOTE = "note";
+
+    private final Map<String, Supplier<? extends CRUDRepository<?, ?>>> factories = new HashMap<>();
+    private final Map<String, CRUDRepository<?, ?>> opened = new LinkedHashMap<>();
+
+    /**
+     * @return a context with the students, assignments and grades stored in the given XML files
+     */
+    public static RepositoryContext xml(String studentiFile, String temeFile, String noteFile) {
+        RepositoryContext context = new RepositoryContext();
+        context.register(STUDENTI, () -> new StudentXMLRepository(new StudentValidator(), studentiFile));
+        context.register(TEME, () -> new TemaXMLRepository(new TemaValidator(), temeFile));
+        context.register(NOTE, () -> {
+            NotaXMLRepository note = new NotaXMLRepository(new NotaValidator(), noteFile);
+            note.setContext(context);
+            return note;
+        });
+        return context;
+    }
+
+    /**
+     * Registers the factory opening a store; the store is not opened yet.
+     */
+    public synchronized void register(String name, Supplier<? extends CRUDRepository<?, ?>> factory) {
+        if (opened.containsKey(name)) {
+            throw new IllegalStateException("Depozitul " + name + " este deja deschis! \n");
+        }
+        factories.put(name, factory);
+    }
+
+    /**
+     * Registers a repository that is already open.
+     */
+    public synchronized void register(String name, CRUDRepository<?, ?> repository) {
+        if (opened.containsKey(name)) {
+            throw new IllegalStateException("Depozitul " + name + " este deja deschis! \n");
+        }
+        factories.put(name, () -> repository);
+        opened.put(name, repository);
+    }
+
+    public synchronized boolean isRegistered(String name) {
+        return factories.containsKey(name);
+    }
+
+    public synchronized boolean isOpen(String name) {
+        return opened.containsKey(name);
+    }
+
+    /**
+     * @return the repository of the store, opening it on first use
+     * @throws IllegalArgumentException if no store was registered under the name
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends CRUDRepository<?, ?>> R get(String name) {
+        Supplier<? extends CRUDRepository<?, ?>> factory;
+        synchronized (this) {
+            CRUDRepository<?, ?> repository = opened.get(name);
+            if (repository != null) {
+                return (R) repository;
+            }
+            factory = factories.get(name);
+            if (factory == null) {
+                throw new IllegalArgumentException("Depozitul " + name + " nu exista! \n");
+            }
+        }
+
+        // opened without holding the lock, since a store may look others up while loading
+        CRUDRepository<?, ?> repository = factory.get();
+        synchronized (this) {
+            CRUDRepository<?, ?> concurrent = opened.putIfAbsent(name, repository);
+            if (concurrent != null) {
+                repository.close();
+                return (R) concurrent;
+            }
+            return (R) repository;
+        }
+    }
+
+    /**
+     * Closes every store opened through the context, in the order they were opened.
+     */
+    @Override
+    public synchronized void close() {
+        opened.values().forEach(CRUDRepository::close);
+        opened.clear();
+    }
+}
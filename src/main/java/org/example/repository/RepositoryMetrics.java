@@ -0,0 +1,55 @@
+package org.example.repository;
+
+import org.example.metrics.Counter;
+import org.example.metrics.Histogram;
+import org.example.metrics.MetricsRegistry;
+
+/**
+ * The metrics of a repository, registered under its name followed by the name of the metric.
+ * Resolved once, so that recording does not look anything up.
+ */
+class RepositoryMetrics {
+    final MetricsRegistry registry;
+    final Histogram findOne;
+    final Histogram findAll;
+    final Histogram stream;
+    final Histogram findPage;
+    final Histogram findAfter;
+    final Histogram save;
+    final Histogram delete;
+    final Histogram update;
+    final Histogram saveAll;
+    final Histogram deleteAll;
+    final Histogram updateAll;
+    final Histogram load;
+    final Histogram persist;
+    final Histogram persistedBytes;
+    final Histogram snapshot;
+    final Histogram snapshotBytes;
+    final Counter errors;
+
+    RepositoryMetrics(MetricsRegistry registry, String name) {
+        this.registry = registry;
+        findOne = registry.latency(name + ".findOne");
+        findAll = registry.latency(name + ".findAll");
+        stream = registry.latency(name + ".stream");
+        findPage = registry.latency(name + ".findPage");
+        findAfter = registry.latency(name + ".findAfter");
+        save = registry.latency(name + ".save");
+        delete = registry.latency(name + ".delete");
+        update = registry.latency(name + ".update");
+        saveAll = registry.latency(name + ".saveAll");
+        deleteAll = registry.latency(name + ".deleteAll");
+        updateAll = registry.latency(name + ".updateAll");
+        load = registry.latency(name + ".load");
+        persist = registry.latency(name + ".persist");
+        persistedBytes = registry.histogram(name + ".persist.bytes", "B");
+        snapshot = registry.latency(name + ".snapshot");
+        snapshotBytes = registry.histogram(name + ".snapshot.bytes", "B");
+        errors = registry.counter(name + ".errors");
+    }
+
+    long start() {
+        return registry.start();
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.repository;
+
+import org.example.domain.HasID;
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.domain.Student;
+import org.example.domain.Tema;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.example.validation.TemaValidator;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Offline tool moving the entities of a sharded store to a different number of shards; nothing else
+ * may use the store meanwhile. The new shards are written to a temporary directory next to the store
+ * and replace the old shard files only once all of them are complete. The old shard files are first moved
+ * to a backup directory next to the store, which is deleted once the new shards are in place; if the tool
+ * stops in between, the old shards are still found there.
+ * The format of the shards is chosen by the extension of the file name: .xml or .xml.gz for XML,
+ * .bin for binary and anything else for text.
+ * Usage: Resharder studenti|teme|note fisier fragmente_vechi fragmente_noi
+ */
+public class Resharder {
+    private Resharder() {
+    }
+
+    /**
+     * @param filename - the name the shard files are derived from by ShardedRepository.shardFile
+     * @param open - opens the repository of a shard file
+     * @return the number of entities moved
+     * @throws IOException if the store has more than oldShards shards, or if moving the entities fails
+     */
+    public static <ID, E extends HasID<ID>> int reshard(String filename, int oldShards, int newShards,
+                                                       Function<String, AbstractCRUDRepository<ID, E>> open,
+                                                       ToIntFunction<ID> shardKey) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        if (Files.exists(Paths.get(ShardedRepository.shardFile(filename, oldShards)))) {
+            throw new IOException("Depozitul are mai mult de " + oldShards + " fragmente: " + filename);
+        }
+        Path directory = Files.createTempDirectory(target.getParent(), target.getFileName() + ".reshard");
+        String staged = directory.resolve(target.getFileName()).toString();
+
+        int moved;
+        try (ShardedRepository<ID, E> source = new ShardedRepository<>(oldShards,
+                shard -> open.apply(ShardedRepository.shardFile(filename, shard)), shardKey);
+             ShardedRepository<ID, E> resharded = new ShardedRepository<>(newShards,
+                shard -> open.apply(ShardedRepository.shardFile(staged, shard)), shardKey)) {
+            BulkResult<E> result = resharded.saveAll(source.findAll());
+            if (!result.getFailed().isEmpty()) {
+                throw new IOException("Entitati care nu au putut fi mutate: " + result.getFailed());
+            }
+            for (AbstractCRUDRepository<ID, E> shard : resharded.getShards()) {
+                if (shard instanceof AbstractXMLRepository) {
+                    ((AbstractXMLRepository<?, ?>) shard).checkpoint();
+                }
+            }
+            moved = result.getSucceeded().size();
+        }
+
+        Path backup = Files.createTempDirectory(target.getParent(), target.getFileName() + ".backup");
+        for (int shard = 0; shard < oldShards; shard++) {
+            String file = ShardedRepository.shardFile(filename, shard);
+            moveToBackup(Paths.get(file), backup);
+            moveToBackup(Paths.get(file + WriteAheadLog.EXTENSION), backup);
+            moveToBackup(Paths.get(file + StoreLock.EXTENSION), backup);
+        }
+        for (int shard = 0; shard < newShards; shard++) {
+            // a text or binary shard that received no entities has no file
+            Path file = Paths.get(ShardedRepository.shardFile(staged, shard));
+            if (Files.exists(file)) {
+                Files.move(file, Paths.get(ShardedRepository.shardFile(filename, shard)), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.deleteIfExists(Paths.get(file + WriteAheadLog.EXTENSION));
+            Files.deleteIfExists(Paths.get(file + StoreLock.EXTENSION));
+        }
+        Files.delete(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(backup)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(backup);
+        return moved;
+    }
+
+    private static void moveToBackup(Path file, Path backup) throws IOException {
+        if (Files.exists(file)) {
+            Files.move(file, backup.resolve(file.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static boolean isXml(String file) {
+        return file.endsWith(".xml") || file.endsWith(".xml" + Compression.EXTENSION);
+    }
+
+    private static boolean isBinary(String file) {
+        return file.endsWith(".bin");
+    }
+
+    static AbstractCRUDRepository<String, Student> openStudenti(String file) {
+        if (isXml(file)) {
+            return new StudentXMLRepository(new StudentValidator(), file);
+        }
+        return isBinary(file) ? new StudentBinaryRepository(new StudentValidator(), file)
+                : new StudentFileRepository(new StudentValidator(), file);
+    }
+
+    static AbstractCRUDRepository<String, Tema> openTeme(String file) {
+        if (isXml(file)) {
+            return new TemaXMLRepository(new TemaValidator(), file);
+        }
+        return isBinary(file) ? new TemaBinaryRepository(new TemaValidator(), file)
+                : new TemaFileRepository(new TemaValidator(), file);
+    }
+
+    static AbstractCRUDRepository<Pair<String, String>, Nota> openNote(String file) {
+        if (isXml(file)) {
+            return new NotaXMLRepository(new NotaValidator(), file);
+        }
+        return isBinary(file) ? new NotaBinaryRepository(new NotaValidator(), file)
+                : new NotaFileRepository(new NotaValidator(), file);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("Utilizare: Resharder studenti|teme|note fisier fragmente_vechi fragmente_noi");
+            return;
+        }
+        String filename = args[1];
+        int oldShards = Integer.parseInt(args[2]);
+        int newShards = Integer.parseInt(args[3]);
+        int moved;
+
+        switch (args[0]) {
+            case RepositoryContext.STUDENTI:
+                moved = reshard(filename, oldShards, newShards, Resharder::openStudenti, String::hashCode);
+                break;
+            case RepositoryContext.TEME:
+                moved = reshard(filename, oldShards, newShards, Resharder::openTeme, String::hashCode);
+                break;
+            case RepositoryContext.NOTE:
+                moved = reshard(filename, oldShards, newShards, Resharder::openNote, ShardedRepository.byStudent());
+                break;
+            default:
+                System.out.println("Tip de entitati necunoscut: " + args[0]);
+                return;
+        }
+
+        System.out.println("Entitati mutate: " + moved + " in " + newShards + " fragmente");
+    }
+}
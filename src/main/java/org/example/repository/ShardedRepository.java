@@ -0,0 +1,338 @@
+package org.example.repository;
+
+import org.example.domain.HasID;
+import org.example.domain.Pair;
+import org.example.metrics.MetricsRegistry;
+import org.example.validation.AlreadyExistsException;
+import org.example.validation.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Repository that partitions its entities between several shards, each a repository with its own file,
+ * entities and persistence, so that a change only rewrites or appends to the shard holding the entity.
+ * The shard of an entity is picked from a shard key computed from its ID: the hash of the ID by default,
+ * or the student of a grade with byStudent, which keeps all the grades of a student in the same shard.
+ * The number of shards is fixed for a set of files; Resharder moves the entities to a different number of shards.
+ * Every public operation is timed under the name of the class, on top of the timing of the shards it reaches.
+ */
+public class ShardedRepository<ID, E extends HasID<ID>> implements CRUDRepository<ID, E> {
+    private final List<AbstractCRUDRepository<ID, E>> shards;
+    private final ToIntFunction<ID> shardKey;
+    private volatile RepositoryMetrics metrics = new RepositoryMetrics(MetricsRegistry.shared(), getClass().getSimpleName());
+
+    /**
+     * Shards the entities by the hash of their ID.
+     * @param factory - opens the shard with the given index, usually on the file named by shardFile
+     */
+    public ShardedRepository(int shardCount, IntFunction<? extends AbstractCRUDRepository<ID, E>> factory) {
+        this(shardCount, factory, Object::hashCode);
+    }
+
+    /**
+     * @param factory - opens the shard with the given index, usually on the file named by shardFile
+     * @param shardKey - the value of an ID that decides its shard; IDs with the same key share a shard
+     */
+    public ShardedRepository(int shardCount, IntFunction<? extends AbstractCRUDRepository<ID, E>> factory,
+                             ToIntFunction<ID> shardKey) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Numarul de fragmente trebuie sa fie pozitiv! \n");
+        }
+        List<AbstractCRUDRepository<ID, E>> opened = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            opened.add(factory.apply(i));
+        }
+        this.shards = Collections.unmodifiableList(opened);
+        this.shardKey = shardKey;
+    }
+
+    /**
+     * The shard key that keeps the grades of a student together, so that they are all found in a single shard.
+     */
+    public static ToIntFunction<Pair<String, String>> byStudent() {
+        return id -> id.getObject1().hashCode();
+    }
+
+    /**
+     * @return the file of a shard: its index inserted before the extensions of the file name,
+     * e.g. note.xml.gz becomes note.3.xml.gz, so that the format is still chosen by the extension
+     */
+    public static String shardFile(String filename, int shard) {
+        int nameStart = Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1;
+        int extension = filename.indexOf('.', nameStart + 1);
+        if (extension < 0) {
+            return filename + "." + shard;
+        }
+        return filename.substring(0, extension) + "." + shard + filename.substring(extension);
+    }
+
+    public int getShardCount() { return shards.size(); }
+
+    public MetricsRegistry getMetricsRegistry() { return metrics.registry; }
+
+    /**
+     * @param registry - registry the operations of the repository are recorded to, under the simple name
+     *                 of its class; the shards keep recording to their own registries
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        metrics = new RepositoryMetrics(registry, getClass().getSimpleName());
+    }
+
+    public List<AbstractCRUDRepository<ID, E>> getShards() { return shards; }
+
+    /**
+     * @return the shard that holds, or would hold, the entity with the given ID
+     */
+    public AbstractCRUDRepository<ID, E> shardOf(ID id) {
+        return shards.get(shardIndex(id));
+    }
+
+    private int shardIndex(ID id) {
+        int key = shardKey.applyAsInt(id);
+        return Math.floorMod(key ^ (key >>> 16), shards.size());
+    }
+
+    /**
+     * Loads every shard, in parallel on the common fork-join pool, and waits for them.
+     */
+    public void load() {
+        shards.parallelStream().forEach(AbstractCRUDRepository::ensureLoaded);
+    }
+
+    /**
+     * Starts loading the shards in the background.
+     */
+    public Future<?> prefetch() {
+        return ForkJoinPool.commonPool().submit(this::load);
+    }
+
+    @Override
+    public E findOne(ID id) {
+        long start = metrics.start();
+        try {
+            if (id == null) {
+                throw new IllegalArgumentException("ID-ul nu poate fi null! \n");
+            }
+            return shardOf(id).findOne(id);
+        } finally {
+            metrics.findOne.recordSince(start);
+        }
+    }
+
+    /**
+     * @return the entities of every shard, shard after shard
+     */
+    @Override
+    public Iterable<E> findAll() {
+        long start = metrics.start();
+        try {
+            load();
+            List<E> all = new ArrayList<>();
+            for (AbstractCRUDRepository<ID, E> shard : shards) {
+                shard.findAll().forEach(all::add);
+            }
+            return all;
+        } finally {
+            metrics.findAll.recordSince(start);
+        }
+    }
+
+    /**
+     * The stream traverses the entities the shards hold when its terminal operation starts.
+     */
+    @Override
+    public Stream<E> stream() {
+        long start = metrics.start();
+        try {
+            load();
+            return snapshotStream();
+        } finally {
+            metrics.stream.recordSince(start);
+        }
+    }
+
+    private Stream<E> snapshotStream() {
+        int characteristics = Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        return StreamSupport.stream(() -> Spliterators.spliterator(snapshot(), characteristics),
+                characteristics | Spliterator.SIZED | Spliterator.SUBSIZED, false);
+    }
+
+    @Override
+    public List<E> findPage(int offset, int limit) {
+        long start = metrics.start();
+        try {
+            load();
+            return Pages.page(snapshotStream(), offset, limit);
+        } finally {
+            metrics.findPage.recordSince(start);
+        }
+    }
+
+    private Object[] snapshot() {
+        List<E> all = new ArrayList<>();
+        shards.forEach(shard -> shard.stream().forEach(all::add));
+        return all.toArray();
+    }
+
+    /**
+     * Merges the pages of the shards: each shard returns at most limit entities after lastId,
+     * and the smallest limit of them form the page.
+     * @throws ClassCastException if the ids are not Comparable.
+     */
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<E> findAfter(ID lastId, int limit) {
+        long start = metrics.start();
+        try {
+            Pages.checkLimit(limit);
+            List<E> candidates = new ArrayList<>();
+            for (AbstractCRUDRepository<ID, E> shard : shards) {
+                candidates.addAll(shard.findAfter(lastId, limit));
+            }
+            Comparator<ID> order = (Comparator) Comparator.naturalOrder();
+            return Pages.smallest(candidates.iterator(), Comparator.comparing(HasID::getID, order), limit);
+        } finally {
+            metrics.findAfter.recordSince(start);
+        }
+    }
+
+    @Override
+    public E save(E entity) throws ValidationException, AlreadyExistsException {
+        long start = metrics.start();
+        try {
+            if (entity == null) {
+                throw new IllegalArgumentException("Entitatea nu poate fi nula! \n");
+            }
+            return shardOf(entity.getID()).save(entity);
+        } finally {
+            metrics.save.recordSince(start);
+        }
+    }
+
+    @Override
+    public E delete(ID id) {
+        long start = metrics.start();
+        try {
+            if (id == null) {
+                throw new IllegalArgumentException("ID-ul nu poate fi nul! \n");
+            }
+            return shardOf(id).delete(id);
+        } finally {
+            metrics.delete.recordSince(start);
+        }
+    }
+
+    @Override
+    public E update(E entity) {
+        long start = metrics.start();
+        try {
+            if (entity == null) {
+                throw new IllegalArgumentException("Entitatea nu poate fi nula! \n");
+            }
+            return shardOf(entity.getID()).update(entity);
+        } finally {
+            metrics.update.recordSince(start);
+        }
+    }
+
+    /**
+     * Every shard saves its part of the entities in a single pass.
+     * The result lists the entities shard after shard.
+     */
+    @Override
+    public BulkResult<E> saveAll(Iterable<E> entities) {
+        long start = metrics.start();
+        try {
+            return byShard(entities, HasID::getID, AbstractCRUDRepository::saveAll,
+                    () -> new IllegalArgumentException("Entitatea nu poate fi nula! \n"));
+        } finally {
+            metrics.saveAll.recordSince(start);
+        }
+    }
+
+    /**
+     * Every shard removes its part of the ids in a single pass.
+     * The result lists the ids shard after shard.
+     */
+    @Override
+    public BulkResult<ID> deleteAll(Iterable<ID> ids) {
+        long start = metrics.start();
+        try {
+            return byShard(ids, id -> id, AbstractCRUDRepository::deleteAll,
+                    () -> new IllegalArgumentException("ID-ul nu poate fi nul! \n"));
+        } finally {
+            metrics.deleteAll.recordSince(start);
+        }
+    }
+
+    /**
+     * Every shard updates its part of the entities in a single pass.
+     * The result lists the entities shard after shard.
+     */
+    @Override
+    public BulkResult<E> updateAll(Iterable<E> entities) {
+        long start = metrics.start();
+        try {
+            return byShard(entities, HasID::getID, AbstractCRUDRepository::updateAll,
+                    () -> new IllegalArgumentException("Entitatea nu poate fi nula! \n"));
+        } finally {
+            metrics.updateAll.recordSince(start);
+        }
+    }
+
+    private interface BulkOperation<ID, E extends HasID<ID>, T> {
+        BulkResult<T> apply(AbstractCRUDRepository<ID, E> shard, List<T> items);
+    }
+
+    /**
+     * Splits the items by shard, keeping their order within a shard, and applies the operation to every shard.
+     */
+    private <T> BulkResult<T> byShard(Iterable<T> items, Function<T, ID> idOf, BulkOperation<ID, E, T> operation,
+                                      Supplier<RuntimeException> nullItem) {
+        BulkResult<T> result = new BulkResult<>();
+        List<List<T>> parts = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            parts.add(new ArrayList<>());
+        }
+
+        for (T item : items) {
+            if (item == null) {
+                result.addFailure(null, nullItem.get());
+            } else {
+                parts.get(shardIndex(idOf.apply(item))).add(item);
+            }
+        }
+
+        for (int i = 0; i < shards.size(); i++) {
+            if (!parts.get(i).isEmpty()) {
+                BulkResult<T> part = operation.apply(shards.get(i), parts.get(i));
+                part.getSucceeded().forEach(result::addSuccess);
+                part.getFailed().forEach(failure -> result.addFailure(failure.getItem(), failure.getCause()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void flush() {
+        shards.parallelStream().forEach(AbstractCRUDRepository::flush);
+    }
+
+    @Override
+    public void close() {
+        shards.parallelStream().forEach(AbstractCRUDRepository::close);
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the snapshots of a repository on a shared background thread, one at a time.
+ * A request made while a snapshot is still waiting to start is folded into that snapshot,
+ * which copies the entities only once it starts.
+ */
+public class SnapshotScheduler {
+    private static final ExecutorService SNAPSHOTS = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "repository-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Runnable snapshot;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile Future<?> last = CompletableFuture.completedFuture(null);
+
+    public SnapshotScheduler(Runnable snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public synchronized void schedule() {
+        if (pending.compareAndSet(false, true)) {
+            last = SNAPSHOTS.submit(() -> {
+                pending.set(false);
+                snapshot.run();
+            });
+        }
+    }
+
+    /**
+     * Waits until every snapshot requested so far is in place.
+     * Must not be called while holding the lock of the repository.
+     */
+    public void await() {
+        try {
+            last.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            ee.getCause().printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.repository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Advisory lock of a store, taken with FileChannel.lock on a .lock file next to it, so that the processes
+ * using the repositories never write the same store at once.
+ * Within a process the lock is reentrant and shared by every repository of the store; it is always taken
+ * while already holding the lock of the repository, never the other way around.
+ * The .lock file stays on disk after the lock is released. Deleting it would let a process waiting on the old file
+ * and a process creating a new one both hold the lock.
+ */
+final class StoreLock {
+    static final String EXTENSION = ".lock";
+
+    private static final ConcurrentMap<Path, StoreLock> LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * The lock is released by closing it; closing it again does nothing.
+     */
+    interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Path path;
+    private final ReentrantLock local = new ReentrantLock();
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    private StoreLock(Path path) {
+        this.path = path;
+    }
+
+    static StoreLock of(String filename) {
+        return LOCKS.computeIfAbsent(Paths.get(filename + EXTENSION).toAbsolutePath().normalize(), StoreLock::new);
+    }
+
+    /**
+     * @return a temporary file next to the target, named after this process, so that processes writing
+     * a new version of the same store at the same time do not write to the same temporary file
+     */
+    static Path temporaryFile(Path target) {
+        Path absolute = target.toAbsolutePath();
+        return absolute.resolveSibling(absolute.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+    }
+
+    /**
+     * Waits until no other thread or process holds the lock.
+     */
+    Held acquire() throws IOException {
+        local.lock();
+        if (local.getHoldCount() == 1) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                fileLock = channel.lock();
+            } catch (IOException | RuntimeException e) {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                local.unlock();
+                throw e;
+            }
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        };
+    }
+
+    private void release() {
+        try {
+            if (local.getHoldCount() == 1) {
+                fileLock.release();
+                channel.close();
+                fileLock = null;
+                channel = null;
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        } finally {
+            local.unlock();
+        }
+    }
+}
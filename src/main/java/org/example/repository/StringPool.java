@@ -0,0 +1,97 @@
+package org.example.repository;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool that deduplicates equal strings, so an ID or a stock feedback loaded thousands of times
+ * is kept in memory once. The pool is a fixed table of slots indexed by hash code: a string that
+ * collides with a different one replaces it, so the pool never holds more than its capacity
+ * and cannot leak. Safe to use from several threads.
+ */
+public class StringPool {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    /**
+     * Estimated heap size of a String apart from its characters: the String object and the array header.
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    private static volatile StringPool shared = new StringPool(DEFAULT_CAPACITY);
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * @param capacity - number of slots, rounded up to a power of two; 0 disables the pool
+     */
+    public StringPool(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacitatea nu poate fi negativa! \n");
+        }
+        int slotCount = capacity == 0 ? 0 : Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+    }
+
+    /**
+     * @return the pool used by the repositories and the service unless they are given another one
+     */
+    public static StringPool shared() { return shared; }
+
+    public static void setShared(StringPool pool) { shared = pool; }
+
+    public int getCapacity() { return slots.length(); }
+
+    /**
+     * @return a pooled string equal to the given one, or the given string itself
+     */
+    public String intern(String value) {
+        if (value == null || slots.length() == 0) {
+            return value;
+        }
+        lookups.increment();
+
+        int slot = value.hashCode() & mask;
+        String pooled = slots.get(slot);
+        if (value.equals(pooled)) {
+            if (pooled != value) {
+                hits.increment();
+                bytesSaved.add(STRING_OVERHEAD + estimatedLength(value));
+            }
+            return pooled;
+        }
+        slots.set(slot, value);
+        return value;
+    }
+
+    private static int estimatedLength(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return 2 * value.length();
+            }
+        }
+        return value.length();
+    }
+
+    public long getLookups() { return lookups.sum(); }
+
+    /**
+     * @return the number of strings replaced by an equal pooled one
+     */
+    public long getHits() { return hits.sum(); }
+
+    /**
+     * @return an estimate of the heap no longer taken by the strings replaced by a pooled one
+     */
+    public long getBytesSaved() { return bytesSaved.sum(); }
+
+    @Override
+    public String toString() {
+        return "StringPool{capacitate = " + getCapacity() + ", cautari = " + getLookups()
+                + ", duplicate = " + getHits() + ", octeti economisiti = " + getBytesSaved() + '}';
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.validation.*;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class StudentBinaryRepository extends AbstractBinaryRepository<String, Student> {
+
+    public StudentBinaryRepository(Validator<Student> validator, String filename) {
+        super(validator, filename, 'S');
+    }
+
+    protected void writeEntity(Student student, DataOutput out) throws IOException {
+        writeString(out, student.getID());
+        writeString(out, student.getNume());
+        out.writeInt(student.getGrupa());
+    }
+
+    protected Student readEntity(ByteBuffer in) {
+        return new Student(readString(in), readString(in), in.getInt());
+    }
+}
@@ -1,11 +1,11 @@
-package org.example.repository;
-
-import org.example.domain.Student;
-import org.example.validation.*;
-
-public class StudentRepository extends AbstractCRUDRepository<String, Student> {
-    public StudentRepository(Validator<Student> validator) {
-        super(validator);
-    }
-}
-
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.validation.*;
+
+public class StudentRepository extends AbstractCRUDRepository<String, Student> {
+    public StudentRepository(Validator<Student> validator) {
+        super(validator);
+    }
+}
+
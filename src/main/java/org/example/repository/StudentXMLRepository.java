@@ -1,32 +1,70 @@
-package org.example.repository;
-
-import org.example.domain.Student;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.example.validation.Validator;
-
-public class StudentXMLRepository extends AbstractXMLRepository<String, Student> {
-
-    public StudentXMLRepository(Validator<Student> validator, String XMLfilename) {
-        super(validator, XMLfilename);
-        loadFromXmlFile();
-    }
-
-    protected Element getElementFromEntity(Student student, Document XMLdocument) {
-        Element element = XMLdocument.createElement("student");
-        element.setAttribute("ID", student.getID());
-
-        element.appendChild(createElement(XMLdocument, "Nume", student.getNume()));
-        element.appendChild(createElement(XMLdocument, "Grupa", String.valueOf(student.getGrupa())));
-
-        return element;
-    }
-
-    protected Student getEntityFromNode(Element node) {
-        String ID = node.getAttributeNode("ID").getValue();
-        String nume = node.getElementsByTagName("Nume").item(0).getTextContent();
-        int grupa = Integer.parseInt(node.getElementsByTagName("Grupa").item(0).getTextContent());
-
-        return new Student(ID, nume, grupa);
-    }
-}
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.example.validation.Validator;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+public class StudentXMLRepository extends AbstractXMLRepository<String, Student> {
+
+    public StudentXMLRepository(Validator<Student> validator, String XMLfilename) {
+        this(validator, XMLfilename, Compression.isCompressed(XMLfilename));
+    }
+
+    public StudentXMLRepository(Validator<Student> validator, String XMLfilename, boolean compressed) {
+        super(validator, XMLfilename, compressed);
+    }
+
+    protected Element getElementFromEntity(Student student, Document XMLdocument) {
+        Element element = XMLdocument.createElement("student");
+        element.setAttribute("ID", student.getID());
+
+        element.appendChild(createElement(XMLdocument, "Nume", student.getNume()));
+        element.appendChild(createElement(XMLdocument, "Grupa", String.valueOf(student.getGrupa())));
+
+        return element;
+    }
+
+    protected void writeEntityToStream(Student student, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement("student");
+        writer.writeAttribute("ID", student.getID());
+
+        writeElement(writer, "Nume", student.getNume());
+        writeElement(writer, "Grupa", String.valueOf(student.getGrupa()));
+
+        writer.writeEndElement();
+    }
+
+    protected Student getEntityFromNode(Element node) {
+        String ID = node.getAttributeNode("ID").getValue();
+        String nume = node.getElementsByTagName("Nume").item(0).getTextContent();
+        int grupa = Integer.parseInt(node.getElementsByTagName("Grupa").item(0).getTextContent());
+
+        return new Student(intern(ID), intern(nume), grupa);
+    }
+
+    protected Student getEntityFromStream(XMLStreamReader reader) throws XMLStreamException {
+        String ID = reader.getAttributeValue(null, "ID");
+        String nume = null;
+        int grupa = 0;
+
+        while (nextChildElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "Nume":
+                    nume = reader.getElementText();
+                    break;
+                case "Grupa":
+                    grupa = Integer.parseInt(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        return new Student(intern(ID), intern(nume), grupa);
+    }
+}
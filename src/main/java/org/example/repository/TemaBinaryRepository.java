@@ -0,0 +1,26 @@
+package org.example.repository;
+
+import org.example.domain.Tema;
+import org.example.validation.*;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class TemaBinaryRepository extends AbstractBinaryRepository<String, Tema> {
+
+    public TemaBinaryRepository(Validator<Tema> validator, String filename) {
+        super(validator, filename, 'T');
+    }
+
+    protected void writeEntity(Tema tema, DataOutput out) throws IOException {
+        writeString(out, tema.getID());
+        writeString(out, tema.getDescriere());
+        out.writeInt(tema.getDeadline());
+        out.writeInt(tema.getStartline());
+    }
+
+    protected Tema readEntity(ByteBuffer in) {
+        return new Tema(readString(in), readString(in), in.getInt(), in.getInt());
+    }
+}
@@ -1,11 +1,11 @@
-package org.example.repository;
-
-import org.example.domain.Tema;
-import org.example.validation.*;
-
-public class TemaRepository extends AbstractCRUDRepository<String, Tema> {
-    public TemaRepository(Validator<Tema> validator) {
-        super(validator);
-    }
-}
-
+package org.example.repository;
+
+import org.example.domain.Tema;
+import org.example.validation.*;
+
+public class TemaRepository extends AbstractCRUDRepository<String, Tema> {
+    public TemaRepository(Validator<Tema> validator) {
+        super(validator);
+    }
+}
+
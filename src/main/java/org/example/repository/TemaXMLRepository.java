@@ -1,34 +1,77 @@
-package org.example.repository;
-
-import org.example.domain.Tema;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.example.validation.Validator;
-
-public class TemaXMLRepository extends AbstractXMLRepository<String, Tema> {
-
-    public TemaXMLRepository(Validator<Tema> validator, String XMLfilename) {
-        super(validator, XMLfilename);
-        loadFromXmlFile();
-    }
-
-    protected Element getElementFromEntity(Tema tema, Document XMLdocument) {
-        Element element = XMLdocument.createElement("tema");
-        element.setAttribute("ID", tema.getID());
-
-        element.appendChild(createElement(XMLdocument, "Descriere", tema.getDescriere()));
-        element.appendChild(createElement(XMLdocument, "Deadline", String.valueOf(tema.getDeadline())));
-        element.appendChild(createElement(XMLdocument, "Startline", String.valueOf(tema.getStartline())));
-
-        return element;
-    }
-
-    protected Tema getEntityFromNode(Element node) {
-        String ID = node.getAttributeNode("ID").getValue();
-        String descriere = node.getElementsByTagName("Descriere").item(0).getTextContent();
-        int deadline = Integer.parseInt(node.getElementsByTagName("Deadline").item(0).getTextContent());
-        int startline = Integer.parseInt(node.getElementsByTagName("Startline").item(0).getTextContent());
-
-        return new Tema(ID, descriere, deadline, startline);
-    }
-}
+package org.example.repository;
+
+import org.example.domain.Tema;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.example.validation.Validator;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+public class TemaXMLRepository extends AbstractXMLRepository<String, Tema> {
+
+    public TemaXMLRepository(Validator<Tema> validator, String XMLfilename) {
+        this(validator, XMLfilename, Compression.isCompressed(XMLfilename));
+    }
+
+    public TemaXMLRepository(Validator<Tema> validator, String XMLfilename, boolean compressed) {
+        super(validator, XMLfilename, compressed);
+    }
+
+    protected Element getElementFromEntity(Tema tema, Document XMLdocument) {
+        Element element = XMLdocument.createElement("tema");
+        element.setAttribute("ID", tema.getID());
+
+        element.appendChild(createElement(XMLdocument, "Descriere", tema.getDescriere()));
+        element.appendChild(createElement(XMLdocument, "Deadline", String.valueOf(tema.getDeadline())));
+        element.appendChild(createElement(XMLdocument, "Startline", String.valueOf(tema.getStartline())));
+
+        return element;
+    }
+
+    protected void writeEntityToStream(Tema tema, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement("tema");
+        writer.writeAttribute("ID", tema.getID());
+
+        writeElement(writer, "Descriere", tema.getDescriere());
+        writeElement(writer, "Deadline", String.valueOf(tema.getDeadline()));
+        writeElement(writer, "Startline", String.valueOf(tema.getStartline()));
+
+        writer.writeEndElement();
+    }
+
+    protected Tema getEntityFromNode(Element node) {
+        String ID = node.getAttributeNode("ID").getValue();
+        String descriere = node.getElementsByTagName("Descriere").item(0).getTextContent();
+        int deadline = Integer.parseInt(node.getElementsByTagName("Deadline").item(0).getTextContent());
+        int startline = Integer.parseInt(node.getElementsByTagName("Startline").item(0).getTextContent());
+
+        return new Tema(intern(ID), intern(descriere), deadline, startline);
+    }
+
+    protected Tema getEntityFromStream(XMLStreamReader reader) throws XMLStreamException {
+        String ID = reader.getAttributeValue(null, "ID");
+        String descriere = null;
+        int deadline = 0;
+        int startline = 0;
+
+        while (nextChildElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "Descriere":
+                    descriere = reader.getElementText();
+                    break;
+                case "Deadline":
+                    deadline = Integer.parseInt(reader.getElementText());
+                    break;
+                case "Startline":
+                    startline = Integer.parseInt(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        return new Tema(intern(ID), intern(descriere), deadline, startline);
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.repository;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of repository mutations, one entry per line.
+ * The first line is a header holding the id of the log and a stamp of the data file it was started against.
+ * The log belongs to a data file that was either written by a snapshot carrying the same id,
+ * or left untouched since the stamp was taken; any other log is stale and is discarded.
+ * Every entry holds the whole entity, so replaying entries already covered by a snapshot is harmless.
+ */
+public class WriteAheadLog {
+    /**
+     * Appended to the name of the data file to name its log.
+     */
+    public static final String EXTENSION = ".wal";
+
+    private static final String HEADER = "#wal ";
+
+    private final String filename;
+    private String id;
+    private int size;
+
+    public WriteAheadLog(String filename) {
+        this.filename = filename;
+    }
+
+    public String getFilename() { return filename; }
+
+    public String getId() { return id; }
+
+    /**
+     * @return the number of entries in the log
+     */
+    public int size() { return size; }
+
+    /**
+     * @return the length of the log file, the position right after its last entry
+     */
+    public long position() { return new File(filename).length(); }
+
+    /**
+     * Reads the entries recorded against the data file.
+     * If the log is missing or stale it is reset and no entries are returned.
+     * @param snapshotId - the log id found in the data file, or null if it has none
+     * @param stamp - stamp of the data file
+     */
+    public List<String> open(String snapshotId, String stamp) {
+        List<String> entries = new ArrayList<>();
+        File file = new File(filename);
+
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String header = reader.readLine();
+                int separator = header == null ? -1 : header.indexOf(' ', HEADER.length());
+                if (header != null && header.startsWith(HEADER) && separator > 0) {
+                    String headerId = header.substring(HEADER.length(), separator);
+                    if (headerId.equals(snapshotId) || header.substring(separator + 1).equals(stamp)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (!line.isEmpty()) {
+                                entries.add(line);
+                            }
+                        }
+                        id = headerId;
+                        size = entries.size();
+                        return entries;
+                    }
+                }
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+        }
+
+        reset(stamp);
+        return entries;
+    }
+
+    /**
+     * Reads the entries appended after the given position, for instance by another process.
+     * An entry not yet ended by a line break is left for a later read.
+     * @param position - a value returned by position() or by an earlier readFrom
+     * @return the position right after the last entry read
+     */
+    public long readFrom(long position, Consumer<String> entries) throws IOException {
+        byte[] tail;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long length = channel.size() - position;
+            if (length <= 0) {
+                return position;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            }
+            tail = buffer.array();
+        }
+
+        int start = 0;
+        for (int i = 0; i < tail.length; i++) {
+            if (tail[i] == '\n') {
+                if (i > start) {
+                    entries.accept(new String(tail, start, i - start, StandardCharsets.UTF_8));
+                    size++;
+                }
+                start = i + 1;
+            }
+        }
+        return position + start;
+    }
+
+    public static String entry(char operation, String payload) {
+        return operation + " " + payload;
+    }
+
+    /**
+     * Appends the entries with a single write.
+     * @param sync - whether the entries must be forced to the storage device before returning
+     * @return the number of bytes written
+     */
+    public long append(List<String> entries, boolean sync) throws IOException {
+        StringBuilder batch = new StringBuilder();
+        for (String entry : entries) {
+            batch.append(entry).append('\n');
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+            size += entries.size();
+            return buffer.capacity();
+        }
+    }
+
+    /**
+     * Drops every entry and starts a new log, with a new id, for the data file with the given stamp.
+     */
+    public void reset(String stamp) {
+        id = UUID.randomUUID().toString();
+        try (OutputStream out = new FileOutputStream(filename, false)) {
+            out.write(header(stamp));
+            size = 0;
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Drops the entries before the given position, which are covered by a snapshot now in place.
+     * The remaining entries are copied to a temporary file that atomically replaces the log.
+     * @param position - a value returned by position()
+     * @param entries - the number of entries before the position
+     * @param stamp - stamp of the data file written by the snapshot
+     */
+    public void truncate(long position, int entries, String stamp) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path truncated = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel source = FileChannel.open(target, StandardOpenOption.READ);
+             FileChannel destination = FileChannel.open(truncated, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(header(stamp));
+            while (buffer.hasRemaining()) {
+                destination.write(buffer);
+            }
+            long count = source.size() - position;
+            long copied = 0;
+            while (copied < count) {
+                copied += source.transferTo(position + copied, count - copied, destination);
+            }
+            destination.force(true);
+        }
+
+        Files.move(truncated, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        size -= entries;
+    }
+
+    private byte[] header(String stamp) {
+        return (HEADER + id + " " + stamp + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.repository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Queues the changes of a repository and hands them to the repository in batches, as decided by a FlushPolicy.
+ * A change is either a record appended to the repository's file or a request to rewrite the whole file.
+ * Rewrites are carried out by the repository as background snapshots, so the records are always kept.
+ * All work happens while holding the repository's lock.
+ * @param <R> - the type of the records, lines of text for the text and XML repositories
+ */
+public class WriteBehindQueue<R> {
+    public interface Sink<R> {
+        /**
+         * @param records - the records to append, in the order they were queued
+         * @param rewrite - whether a rewrite of the whole file was requested
+         * @param sync - whether the written data must be forced to the storage device
+         */
+        void write(List<R> records, boolean rewrite, boolean sync) throws IOException;
+    }
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "repository-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock;
+    private final Sink<R> sink;
+    private final ToLongFunction<R> sizeOf;
+    private FlushPolicy policy = FlushPolicy.IMMEDIATE;
+
+    private List<R> records = new ArrayList<>();
+    private long bytes;
+    private boolean rewrite;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * @param sizeOf - the number of bytes a record takes in the file, for the byte limit of the policy
+     */
+    public WriteBehindQueue(Object lock, Sink<R> sink, ToLongFunction<R> sizeOf) {
+        this.lock = lock;
+        this.sink = sink;
+        this.sizeOf = sizeOf;
+    }
+
+    /**
+     * A queue of lines, each taking its length plus the line break.
+     */
+    public static WriteBehindQueue<String> ofLines(Object lock, Sink<String> sink) {
+        return new WriteBehindQueue<>(lock, sink, line -> line.length() + 1);
+    }
+
+    public FlushPolicy getPolicy() {
+        synchronized (lock) {
+            return policy;
+        }
+    }
+
+    public void setPolicy(FlushPolicy policy) {
+        synchronized (lock) {
+            flush();
+            this.policy = policy;
+        }
+    }
+
+    /**
+     * @return the number of records waiting to be appended
+     */
+    public int size() {
+        synchronized (lock) {
+            return records.size();
+        }
+    }
+
+    public void append(R record) {
+        synchronized (lock) {
+            records.add(record);
+            bytes += sizeOf.applyAsLong(record);
+            queued();
+        }
+    }
+
+    /**
+     * Queues several records as a single change: at most one commit is triggered for all of them.
+     */
+    public void appendAll(Collection<R> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            for (R record : batch) {
+                records.add(record);
+                bytes += sizeOf.applyAsLong(record);
+            }
+            queued();
+        }
+    }
+
+    public void rewrite() {
+        synchronized (lock) {
+            rewrite = true;
+            queued();
+        }
+    }
+
+    private void queued() {
+        int pending = records.size() + (rewrite ? 1 : 0);
+        if ((policy.getMaxRecords() > 0 && pending >= policy.getMaxRecords())
+                || (policy.getMaxBytes() > 0 && bytes >= policy.getMaxBytes())) {
+            flush();
+        } else if (scheduledFlush == null && policy.getMaxDelayMillis() > 0) {
+            scheduledFlush = FLUSHER.schedule(this::flush, policy.getMaxDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes every queued change now, as a single commit.
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (records.isEmpty() && !rewrite) {
+                return;
+            }
+
+            List<R> batch = records;
+            boolean batchRewrite = rewrite;
+            records = new ArrayList<>();
+            bytes = 0;
+            rewrite = false;
+
+            try {
+                sink.write(batch, batchRewrite, policy.isSync());
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+        }
+    }
+}
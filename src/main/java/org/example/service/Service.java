@@ -1,120 +1,385 @@
-package org.example.service;
-
-import org.example.domain.*;
-import org.example.repository.*;
-import org.example.validation.AlreadyExistsException;
-
-import java.time.LocalDate;
-import java.time.temporal.WeekFields;
-import java.util.Locale;
-
-public class Service {
-    private StudentXMLRepository studentXmlRepo;
-    private TemaXMLRepository temaXmlRepo;
-    private NotaXMLRepository notaXmlRepo;
-
-    public Service(StudentXMLRepository studentXmlRepo, TemaXMLRepository temaXmlRepo, NotaXMLRepository notaXmlRepo) {
-        this.studentXmlRepo = studentXmlRepo;
-        this.temaXmlRepo = temaXmlRepo;
-        this.notaXmlRepo = notaXmlRepo;
-    }
-
-    public Iterable<Student> findAllStudents() { return studentXmlRepo.findAll(); }
-
-    public Iterable<Tema> findAllTeme() { return temaXmlRepo.findAll(); }
-
-    public Iterable<Nota> findAllNote() { return notaXmlRepo.findAll(); }
-
-    public void saveStudent(String id, String nume, int grupa) throws AlreadyExistsException {
-        Student student = new Student(id, nume, grupa);
-        studentXmlRepo.save(student);
-    }
-
-    public void saveTema(String id, String descriere, int deadline, int startline) throws AlreadyExistsException {
-        Tema tema = new Tema(id, descriere, deadline, startline);
-        temaXmlRepo.save(tema);
-    }
-
-    public void saveNota(String idStudent, String idTema, double valNota, int predata, String feedback) throws AlreadyExistsException {
-        if (studentXmlRepo.findOne(idStudent) == null || temaXmlRepo.findOne(idTema) == null) {
-            throw new RuntimeException("Student sau tema invalida!");
-        }
-        else {
-            int deadline = temaXmlRepo.findOne(idTema).getDeadline();
-
-            if (predata - deadline > 2) {
-                valNota =  1;
-            } else {
-                valNota =  valNota - 2.5 * (predata - deadline);
-            }
-            Nota nota = new Nota(new Pair(idStudent, idTema), valNota, predata, feedback);
-            notaXmlRepo.save(nota);
-        }
-    }
-
-    public int deleteStudent(String id) {
-        Student result = studentXmlRepo.delete(id);
-
-        if (result == null) {
-            return 0;
-        }
-        return 1;
-    }
-
-    public int deleteTema(String id) {
-        Tema result = temaXmlRepo.delete(id);
-
-        if (result == null) {
-            return 0;
-        }
-        return 1;
-    }
-
-    public int updateStudent(String id, String numeNou, int grupaNoua) {
-        Student studentNou = new Student(id, numeNou, grupaNoua);
-        Student result = studentXmlRepo.update(studentNou);
-
-        if (result == null) {
-            return 0;
-        }
-        return 1;
-    }
-
-    public int updateTema(String id, String descriereNoua, int deadlineNou, int startlineNou) {
-        Tema temaNoua = new Tema(id, descriereNoua, deadlineNou, startlineNou);
-        Tema result = temaXmlRepo.update(temaNoua);
-
-        if (result == null) {
-            return 0;
-        }
-        return 1;
-    }
-
-    public int extendDeadline(String id, int noWeeks) {
-        Tema tema = temaXmlRepo.findOne(id);
-
-        if (tema != null) {
-            LocalDate date = LocalDate.now();
-            WeekFields weekFields = WeekFields.of(Locale.getDefault());
-            int currentWeek = date.get(weekFields.weekOfWeekBasedYear());
-
-            if (currentWeek >= 39) {
-                currentWeek = currentWeek - 39;
-            } else {
-                currentWeek = currentWeek + 12;
-            }
-
-            if (currentWeek <= tema.getDeadline()) {
-                int deadlineNou = tema.getDeadline() + noWeeks;
-                return updateTema(tema.getID(), tema.getDescriere(), deadlineNou, tema.getStartline());
-            }
-        }
-        return 0;
-    }
-
-    public void createStudentFile(String idStudent, String idTema) {
-        Nota nota = notaXmlRepo.findOne(new Pair(idStudent, idTema));
-
-        notaXmlRepo.createFile(nota);
-    }
-}
+package org.example.service;
+
+import org.example.domain.*;
+import org.example.metrics.MetricsRegistry;
+import org.example.repository.*;
+import org.example.validation.AlreadyExistsException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.WeekFields;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class Service {
+    private StudentXMLRepository studentXmlRepo;
+    private TemaXMLRepository temaXmlRepo;
+    private NotaXMLRepository notaXmlRepo;
+    private StringPool stringPool = StringPool.shared();
+    private MetricsRegistry metrics = MetricsRegistry.shared();
+    private final GradeAggregates aggregates = new GradeAggregates();
+    private boolean verifyAggregates;
+
+    public Service(StudentXMLRepository studentXmlRepo, TemaXMLRepository temaXmlRepo, NotaXMLRepository notaXmlRepo) {
+        this(contextOf(studentXmlRepo, temaXmlRepo, notaXmlRepo));
+    }
+
+    /**
+     * @param context - holding the XML repositories of the students, assignments and grades,
+     *                which the grades repository also uses for its own lookups
+     */
+    public Service(RepositoryContext context) {
+        this.studentXmlRepo = context.get(RepositoryContext.STUDENTI);
+        this.temaXmlRepo = context.get(RepositoryContext.TEME);
+        this.notaXmlRepo = context.get(RepositoryContext.NOTE);
+        this.notaXmlRepo.setContext(context);
+
+        studentXmlRepo.addListener(aggregates.getStudentListener());
+        notaXmlRepo.addListener(aggregates.getGradeListener());
+    }
+
+    private static RepositoryContext contextOf(StudentXMLRepository studentXmlRepo, TemaXMLRepository temaXmlRepo,
+                                               NotaXMLRepository notaXmlRepo) {
+        RepositoryContext context = new RepositoryContext();
+        context.register(RepositoryContext.STUDENTI, studentXmlRepo);
+        context.register(RepositoryContext.TEME, temaXmlRepo);
+        context.register(RepositoryContext.NOTE, notaXmlRepo);
+        return context;
+    }
+
+    public StringPool getStringPool() { return stringPool; }
+
+    public void setStringPool(StringPool stringPool) { this.stringPool = stringPool; }
+
+    public MetricsRegistry getMetricsRegistry() { return metrics; }
+
+    /**
+     * @param registry - registry the service and its repositories record their operations to
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        this.metrics = registry;
+        studentXmlRepo.setMetricsRegistry(registry);
+        temaXmlRepo.setMetricsRegistry(registry);
+        notaXmlRepo.setMetricsRegistry(registry);
+    }
+
+    private void record(String operation, long start) {
+        if (start != MetricsRegistry.DISABLED) {
+            metrics.latency("Service." + operation).recordSince(start);
+        }
+    }
+
+    public Iterable<Student> findAllStudents() { return studentXmlRepo.findAll(); }
+
+    public Iterable<Tema> findAllTeme() { return temaXmlRepo.findAll(); }
+
+    public Iterable<Nota> findAllNote() { return notaXmlRepo.findAll(); }
+
+    public List<Student> findStudentsAfter(String lastId, int limit) { return studentXmlRepo.findAfter(lastId, limit); }
+
+    public List<Tema> findTemeAfter(String lastId, int limit) { return temaXmlRepo.findAfter(lastId, limit); }
+
+    public List<Nota> findNoteAfter(Pair<String, String> lastId, int limit) { return notaXmlRepo.findAfter(lastId, limit); }
+
+    public List<Nota> findNoteByStudent(String idStudent) { return notaXmlRepo.findByStudent(idStudent); }
+
+    public List<Nota> findNoteByTema(String idTema) { return notaXmlRepo.findByTema(idTema); }
+
+    public GradeStats getStudentStats(String idStudent) {
+        loadAggregates();
+        checkAggregates();
+        return aggregates.getStudentStats(idStudent);
+    }
+
+    public GradeStats getTemaStats(String idTema) {
+        loadAggregates();
+        checkAggregates();
+        return aggregates.getTemaStats(idTema);
+    }
+
+    /**
+     * @return the statistics of the grades of the students currently in the group
+     */
+    public GradeStats getGrupaStats(int grupa) {
+        loadAggregates();
+        checkAggregates();
+        return aggregates.getGrupaStats(grupa);
+    }
+
+    /**
+     * Recomputes the grade statistics from the repositories and compares them with the maintained ones.
+     * @return a description of every statistic that differs, empty if they all match
+     */
+    public List<String> verifyAggregates() {
+        return aggregates.verify(notaXmlRepo.findAll(), studentXmlRepo.findAll());
+    }
+
+    public boolean isVerifyAggregates() { return verifyAggregates; }
+
+    /**
+     * @param verifyAggregates - whether every statistics query first runs verifyAggregates
+     *                         and fails with an IllegalStateException on a difference
+     */
+    public void setVerifyAggregates(boolean verifyAggregates) { this.verifyAggregates = verifyAggregates; }
+
+    /**
+     * The statistics are maintained by listeners, which only see the grades and students once their repositories load.
+     */
+    private void loadAggregates() {
+        studentXmlRepo.load();
+        notaXmlRepo.load();
+    }
+
+    private void checkAggregates() {
+        if (verifyAggregates) {
+            List<String> differences = verifyAggregates();
+            if (!differences.isEmpty()) {
+                throw new IllegalStateException("Statistici inconsistente: " + differences);
+            }
+        }
+    }
+
+    public void saveStudent(String id, String nume, int grupa) throws AlreadyExistsException {
+        Student student = new Student(stringPool.intern(id), stringPool.intern(nume), grupa);
+        studentXmlRepo.save(student);
+    }
+
+    public void saveTema(String id, String descriere, int deadline, int startline) throws AlreadyExistsException {
+        Tema tema = new Tema(stringPool.intern(id), stringPool.intern(descriere), deadline, startline);
+        temaXmlRepo.save(tema);
+    }
+
+    public void saveNota(String idStudent, String idTema, double valNota, int predata, String feedback) throws AlreadyExistsException {
+        long start = metrics.start();
+        try {
+            Nota nota = createNota(idStudent, idTema, valNota, predata, feedback);
+            notaXmlRepo.save(nota);
+        } finally {
+            record("saveNota", start);
+        }
+    }
+
+    private Nota createNota(String idStudent, String idTema, double valNota, int predata, String feedback) {
+        Tema tema = temaXmlRepo.findOne(idTema);
+        if (studentXmlRepo.findOne(idStudent) == null || tema == null) {
+            throw new RuntimeException("Student sau tema invalida!");
+        }
+        else {
+            int deadline = tema.getDeadline();
+
+            if (predata - deadline > 2) {
+                valNota =  1;
+            } else {
+                valNota =  valNota - 2.5 * (predata - deadline);
+            }
+            return new Nota(new Pair(stringPool.intern(idStudent), stringPool.intern(idTema)), valNota, predata,
+                    stringPool.intern(feedback));
+        }
+    }
+
+    public BulkResult<Student> saveStudents(Iterable<Student> students) { return studentXmlRepo.saveAll(students); }
+
+    public BulkResult<Tema> saveTeme(Iterable<Tema> teme) { return temaXmlRepo.saveAll(teme); }
+
+    /**
+     * Saves the grades in a single persistence pass, applying the same checks and late penalty as saveNota.
+     * @param note - grades holding the value given by the teacher, before the penalty
+     */
+    public BulkResult<Nota> saveNote(Iterable<Nota> note) {
+        BulkResult<Nota> result = new BulkResult<>();
+        List<Nota> penalized = new ArrayList<>();
+
+        for (Nota nota : note) {
+            try {
+                penalized.add(createNota(nota.getID().getObject1(), nota.getID().getObject2(), nota.getNota(),
+                        nota.getSaptamanaPredare(), nota.getFeedback()));
+            } catch (RuntimeException re) {
+                result.addFailure(nota, re);
+            }
+        }
+
+        BulkResult<Nota> saved = notaXmlRepo.saveAll(penalized);
+        saved.getSucceeded().forEach(result::addSuccess);
+        saved.getFailed().forEach(failure -> result.addFailure(failure.getItem(), failure.getCause()));
+        return result;
+    }
+
+    public int deleteStudent(String id) {
+        Student result = studentXmlRepo.delete(id);
+
+        if (result == null) {
+            return 0;
+        }
+        return 1;
+    }
+
+    public int deleteTema(String id) {
+        Tema result = temaXmlRepo.delete(id);
+
+        if (result == null) {
+            return 0;
+        }
+        return 1;
+    }
+
+    public BulkResult<String> deleteStudents(Iterable<String> ids) { return studentXmlRepo.deleteAll(ids); }
+
+    public BulkResult<String> deleteTeme(Iterable<String> ids) { return temaXmlRepo.deleteAll(ids); }
+
+    public int updateStudent(String id, String numeNou, int grupaNoua) {
+        Student studentNou = new Student(stringPool.intern(id), stringPool.intern(numeNou), grupaNoua);
+        Student result = studentXmlRepo.update(studentNou);
+
+        if (result == null) {
+            return 0;
+        }
+        return 1;
+    }
+
+    public int updateTema(String id, String descriereNoua, int deadlineNou, int startlineNou) {
+        Tema temaNoua = new Tema(stringPool.intern(id), stringPool.intern(descriereNoua), deadlineNou, startlineNou);
+        Tema result = temaXmlRepo.update(temaNoua);
+
+        if (result == null) {
+            return 0;
+        }
+        return 1;
+    }
+
+    public BulkResult<Student> updateStudents(Iterable<Student> students) { return studentXmlRepo.updateAll(students); }
+
+    public BulkResult<Tema> updateTeme(Iterable<Tema> teme) { return temaXmlRepo.updateAll(teme); }
+
+    public int extendDeadline(String id, int noWeeks) {
+        Tema tema = temaXmlRepo.findOne(id);
+
+        if (tema != null) {
+            LocalDate date = LocalDate.now();
+            WeekFields weekFields = WeekFields.of(Locale.getDefault());
+            int currentWeek = date.get(weekFields.weekOfWeekBasedYear());
+
+            if (currentWeek >= 39) {
+                currentWeek = currentWeek - 39;
+            } else {
+                currentWeek = currentWeek + 12;
+            }
+
+            if (currentWeek <= tema.getDeadline()) {
+                int deadlineNou = tema.getDeadline() + noWeeks;
+                return updateTema(tema.getID(), tema.getDescriere(), deadlineNou, tema.getStartline());
+            }
+        }
+        return 0;
+    }
+
+    public void createStudentFile(String idStudent, String idTema) {
+        long start = metrics.start();
+        try {
+            Nota nota = notaXmlRepo.findOne(idStudent, idTema);
+
+            notaXmlRepo.createFile(nota);
+        } finally {
+            record("createStudentFile", start);
+        }
+    }
+
+    /**
+     * Writes the report of every student with grades into outputDir, one file per student, in parallel.
+     * The files are named after the ID and the name of the student, since names need not be unique.
+     * @return the number of reports written
+     */
+    public int exportAllReports(Path outputDir) throws IOException {
+        long start = metrics.start();
+        Files.createDirectories(outputDir);
+        Map<String, String> reports = formatAllReports();
+
+        try {
+            reports.entrySet().parallelStream().forEach(report -> {
+                try {
+                    Files.write(outputDir.resolve(report.getKey()), report.getValue().getBytes(StandardCharsets.UTF_8));
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            });
+        } catch (UncheckedIOException uioe) {
+            throw uioe.getCause();
+        } finally {
+            record("exportAllReports", start);
+        }
+        return reports.size();
+    }
+
+    /**
+     * Same as exportAllReports(Path), with the reports bundled as the entries of a single zip stream.
+     * @param out - receives the zip; it is not closed
+     * @return the number of reports written
+     */
+    public int exportAllReports(OutputStream out) throws IOException {
+        long start = metrics.start();
+        Map<String, String> reports = formatAllReports();
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        for (Map.Entry<String, String> report : reports.entrySet()) {
+            zip.putNextEntry(new ZipEntry(report.getKey()));
+            zip.write(report.getValue().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        record("exportAllReportsZip", start);
+        return reports.size();
+    }
+
+    /**
+     * Groups the grades by student in a single pass and formats the reports in parallel.
+     * Grades of students that no longer exist are left out.
+     * @return the reports by file name, sorted
+     */
+    private Map<String, String> formatAllReports() {
+        Map<String, List<Nota>> byStudent = new TreeMap<>();
+        for (Nota nota : notaXmlRepo.findAll()) {
+            byStudent.computeIfAbsent(nota.getID().getObject1(), id -> new ArrayList<>()).add(nota);
+        }
+
+        // named in the order of the IDs, so that the numbering of colliding names does not change between exports
+        Map<String, List<Nota>> byName = new HashMap<>();
+        for (Map.Entry<String, List<Nota>> note : byStudent.entrySet()) {
+            Student student = studentXmlRepo.findOne(note.getKey());
+            if (student != null) {
+                byName.put(reportName(student, byName.keySet()), note.getValue());
+            }
+        }
+
+        return byName.entrySet().parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                        note -> NotaXMLRepository.formatReport(note.getValue(), temaXmlRepo),
+                        (first, second) -> {
+                            throw new IllegalStateException("Nume de raport duplicat! \n");
+                        }, TreeMap::new));
+    }
+
+    /**
+     * @return the file name of the report of the student; a name already taken, e.g. by the ID a/b after a_b,
+     * gets a number appended
+     */
+    private static String reportName(Student student, Set<String> taken) {
+        String name = (student.getID() + "_" + student.getNume()).replaceAll("[\\\\/:*?\"<>|]", "_");
+        String fileName = name + ".txt";
+        for (int number = 2; taken.contains(fileName); number++) {
+            fileName = name + "_" + number + ".txt";
+        }
+        return fileName;
+    }
+
+    public void close() {
+        studentXmlRepo.close();
+        temaXmlRepo.close();
+        notaXmlRepo.close();
+    }
+}
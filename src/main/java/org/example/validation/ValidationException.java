@@ -1,8 +1,8 @@
-package org.example.validation;
-
-public class ValidationException extends RuntimeException{
-    public ValidationException(String exception) {
-        super(exception);
-    }
-}
-
+package org.example.validation;
+
+public class ValidationException extends RuntimeException{
+    public ValidationException(String exception) {
+        super(exception);
+    }
+}
+
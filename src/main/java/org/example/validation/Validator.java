@@ -1,5 +1,5 @@
-package org.example.validation;
-
-public interface Validator<E> {
-    void validate(E entity) throws ValidationException;
+package org.example.validation;
+
+public interface Validator<E> {
+    void validate(E entity) throws ValidationException;
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package org.example.metrics;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.domain.Student;
+import org.example.repository.ColumnarNotaRepository;
+import org.example.repository.ShardedRepository;
+import org.example.repository.StudentFileRepository;
+import org.example.repository.StudentRepository;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+    @Test
+    public void histogram_PercentilesWithinBucketPrecision() {
+        Histogram histogram = new MetricsRegistry(true).histogram("valori", "ns");
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1_000_000, histogram.getCount());
+        assertEquals(500_000.5, histogram.getMean(), 1e-6);
+        assertEquals(500_000, histogram.getPercentile(0.5), 500_000 / 32.0);
+        assertEquals(990_000, histogram.getPercentile(0.99), 990_000 / 32.0);
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(1, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void disabled_NothingRecorded() {
+        MetricsRegistry registry = new MetricsRegistry(false);
+        Histogram histogram = registry.latency("operatie");
+
+        histogram.recordSince(registry.start());
+        histogram.record(5);
+        registry.counter("erori").increment();
+
+        assertEquals(MetricsRegistry.DISABLED, registry.start());
+        assertEquals(0, histogram.getCount());
+        assertEquals("", registry.report());
+    }
+
+    @Test
+    public void repositories_OperationsAndPersistRecorded(@TempDir Path directory) throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        StudentRepository memory = new StudentRepository(new StudentValidator());
+        memory.setMetricsRegistry(registry);
+        StudentFileRepository file = new StudentFileRepository(new StudentValidator(),
+                directory.resolve("studenti.txt").toString());
+        file.setMetricsRegistry(registry);
+
+        memory.save(new Student("1", "ana", 221));
+        memory.findOne("1");
+        memory.findOne("2");
+        file.save(new Student("1", "ana", 221));
+        file.flush();
+
+        assertEquals(1, registry.latency("StudentRepository.save").getCount());
+        assertEquals(2, registry.latency("StudentRepository.findOne").getCount());
+        assertEquals(1, registry.latency("StudentFileRepository.save").getCount());
+        assertEquals(1, registry.latency("StudentFileRepository.persist").getCount());
+        assertEquals("1#ana#221\n".length(), registry.histogram("StudentFileRepository.persist.bytes", "B").getMax());
+        assertTrue(registry.report().contains("StudentFileRepository.persist.bytes: numar=1"));
+    }
+
+    @Test
+    public void streamsPagesShardedAndColumnar_Recorded() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        ShardedRepository<String, Student> sharded = new ShardedRepository<>(2,
+                shard -> new StudentRepository(new StudentValidator()));
+        sharded.setMetricsRegistry(registry);
+        sharded.getShards().forEach(shard -> shard.setMetricsRegistry(registry));
+        ColumnarNotaRepository columnar = new ColumnarNotaRepository(new NotaValidator());
+        columnar.setMetricsRegistry(registry);
+
+        sharded.saveAll(List.of(new Student("1", "ana", 221), new Student("2", "ion", 222)));
+        assertEquals(2, sharded.stream().count());
+        assertEquals(1, sharded.findPage(1, 5).size());
+        sharded.getShards().forEach(shard -> shard.findPage(0, 5));
+        columnar.saveAll(List.of(new Nota(new Pair<>("1", "1"), 9, 7, "ok"), new Nota(new Pair<>("1", "2"), 8, 7, "ok")));
+        columnar.delete(new Pair<>("1", "2"));
+        assertEquals(1, columnar.stream().count());
+        assertEquals(1, columnar.findPage(0, 5).size());
+
+        assertEquals(1, registry.latency("ShardedRepository.saveAll").getCount());
+        assertEquals(1, registry.latency("ShardedRepository.stream").getCount());
+        assertEquals(1, registry.latency("ShardedRepository.findPage").getCount());
+        assertEquals(2, registry.latency("StudentRepository.findPage").getCount());
+        assertEquals(1, registry.latency("ColumnarNotaRepository.saveAll").getCount());
+        assertEquals(0, registry.latency("ColumnarNotaRepository.save").getCount());
+        assertEquals(1, registry.latency("ColumnarNotaRepository.delete").getCount());
+        assertEquals(1, registry.latency("ColumnarNotaRepository.stream").getCount());
+        assertEquals(1, registry.latency("ColumnarNotaRepository.findPage").getCount());
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.domain.Student;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRepositoryTest {
+    private static final String STUDENTS_PATH = "students_repository_test.bin";
+    private static final String GRADES_PATH = "grades_repository_test.bin";
+    private static final String TEXT_PATH = "students_repository_test.txt";
+
+    @BeforeEach
+    @AfterEach
+    public void deleteFiles() {
+        new File(STUDENTS_PATH).delete();
+        new File(STUDENTS_PATH + StoreLock.EXTENSION).delete();
+        StoreLock.temporaryFile(Paths.get(STUDENTS_PATH)).toFile().delete();
+        new File(GRADES_PATH).delete();
+        new File(GRADES_PATH + StoreLock.EXTENSION).delete();
+        new File(TEXT_PATH).delete();
+        new File(TEXT_PATH + StoreLock.EXTENSION).delete();
+    }
+
+    @Test
+    public void reopen_SeparatorsInFields_ReadBack() {
+        StudentBinaryRepository repository = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL #1\nPOPESCU", 935)));
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        repository.update(new Student("2", "MARIA Ștefănescu", 936));
+        NotaBinaryRepository note = new NotaBinaryRepository(new NotaValidator(), GRADES_PATH);
+        assertDoesNotThrow(() -> note.save(new Nota(new Pair<>("1", "1"), 9.5, 7, "bine # foarte bine")));
+        assertDoesNotThrow(() -> note.save(new Nota(new Pair<>("1", "2"), 8, 8, null)));
+        note.delete(new Pair<>("1", "2"));
+
+        StudentBinaryRepository reopened = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("IONEL #1\nPOPESCU", reopened.findOne("1").getNume());
+        assertEquals("MARIA Ștefănescu", reopened.findOne("2").getNume());
+        NotaBinaryRepository reopenedNote = new NotaBinaryRepository(new NotaValidator(), GRADES_PATH);
+        assertEquals("bine # foarte bine", reopenedNote.findOne("1", "1").getFeedback());
+        assertEquals(9.5, reopenedNote.findOne("1", "1").getNota());
+        assertNull(reopenedNote.findOne("1", "2"));
+    }
+
+    @Test
+    public void load_TornLastRecord_CutOff() throws IOException {
+        StudentBinaryRepository repository = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        long length = new File(STUDENTS_PATH).length();
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        try (RandomAccessFile file = new RandomAccessFile(STUDENTS_PATH, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        StudentBinaryRepository reopened = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNotNull(reopened.findOne("1"));
+        assertNull(reopened.findOne("2"));
+        assertEquals(length, new File(STUDENTS_PATH).length());
+
+        assertDoesNotThrow(() -> reopened.save(new Student("3", "ION", 937)));
+        StudentBinaryRepository again = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNotNull(again.findOne("3"));
+    }
+
+    @Test
+    public void load_CorruptedRecord_SkippedAndKept() throws IOException {
+        StudentBinaryRepository repository = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        long length = new File(STUDENTS_PATH).length();
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        assertDoesNotThrow(() -> repository.save(new Student("3", "ION", 937)));
+        long total = new File(STUDENTS_PATH).length();
+        try (RandomAccessFile file = new RandomAccessFile(STUDENTS_PATH, "rw")) {
+            file.seek(length + 1);
+            file.write(0x7F);
+        }
+
+        StudentBinaryRepository reopened = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNotNull(reopened.findOne("1"));
+        assertNull(reopened.findOne("2"));
+        assertNotNull(reopened.findOne("3"));
+        assertEquals(total, new File(STUDENTS_PATH).length());
+    }
+
+    @Test
+    public void load_TornHeader_OpenedEmpty() throws IOException {
+        Files.write(Paths.get(STUDENTS_PATH), new byte[]{0x53, 0x53, 0x56});
+        StudentBinaryRepository repository = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNull(repository.findOne("1"));
+
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        repository.flush();
+        StudentBinaryRepository reopened = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("IONEL", reopened.findOne("1").getNume());
+    }
+
+    @Test
+    public void load_OtherFile_Rejected() throws IOException {
+        Files.write(Paths.get(STUDENTS_PATH), "1#ana#221\n".getBytes());
+        StudentBinaryRepository repository = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+
+        assertThrows(IllegalStateException.class, () -> repository.findOne("1"));
+
+        assertDoesNotThrow(() -> new NotaBinaryRepository(new NotaValidator(), GRADES_PATH)
+                .save(new Nota(new Pair<>("1", "1"), 10, 7, "ok")));
+        StudentBinaryRepository wrongKind = new StudentBinaryRepository(new StudentValidator(), GRADES_PATH);
+        assertThrows(IllegalStateException.class, () -> wrongKind.findOne("1"));
+    }
+
+    @Test
+    public void compact_KeepsOneRecordPerEntity() {
+        StudentBinaryRepository repository = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        for (int i = 0; i < 10; i++) {
+            repository.update(new Student("1", "IONEL " + i, 935));
+        }
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        long length = new File(STUDENTS_PATH).length();
+
+        repository.compact();
+
+        assertTrue(new File(STUDENTS_PATH).length() < length);
+        assertEquals(0, repository.getGarbageRatio());
+        assertFalse(new File(STUDENTS_PATH + ".tmp").exists());
+        StudentBinaryRepository reopened = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("IONEL 9", reopened.findOne("1").getNume());
+        assertNotNull(reopened.findOne("2"));
+    }
+
+    @Test
+    public void convert_TextStore_AllEntitiesCopied() throws IOException {
+        try (FileWriter fileWriter = new FileWriter(TEXT_PATH)) {
+            fileWriter.write("1#ana#221\n2#maria#222\n");
+        }
+
+        BulkResult<Student> result = BinaryConverter.convert(
+                new StudentFileRepository(new StudentValidator(), TEXT_PATH),
+                new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH));
+
+        assertEquals(2, result.getSucceeded().size());
+        StudentBinaryRepository converted = new StudentBinaryRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("maria", converted.findOne("2").getNume());
+    }
+}
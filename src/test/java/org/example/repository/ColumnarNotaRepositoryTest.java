@@ -0,0 +1,152 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.validation.NotaValidator;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarNotaRepositoryTest {
+    private static Nota nota(String student, String tema, double value) {
+        return new Nota(new Pair<>(student, tema), value, 3, "feedback " + student + tema);
+    }
+
+    private static Map<Pair<String, String>, Double> grades(Iterable<Nota> note) {
+        Map<Pair<String, String>, Double> grades = new HashMap<>();
+        note.forEach(nota -> grades.put(nota.getID(), nota.getNota()));
+        return grades;
+    }
+
+    @Test
+    public void randomOperations_MatchNotaRepository() throws Exception {
+        ColumnarNotaRepository columnar = new ColumnarNotaRepository(new NotaValidator());
+        NotaRepository reference = new NotaRepository(new NotaValidator());
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            Nota nota = nota("s" + random.nextInt(60), "t" + random.nextInt(40), random.nextInt(11));
+            switch (random.nextInt(3)) {
+                case 0:
+                    boolean saved = reference.findOne(nota.getID()) == null;
+                    if (saved) {
+                        reference.save(nota);
+                        columnar.save(nota);
+                    } else {
+                        assertThrows(Exception.class, () -> columnar.save(nota));
+                    }
+                    break;
+                case 1:
+                    Nota removed = reference.delete(nota.getID());
+                    Nota removedColumnar = columnar.delete(nota.getID());
+                    assertEquals(removed == null, removedColumnar == null);
+                    break;
+                default:
+                    assertEquals(reference.update(nota) == null, columnar.update(nota) == null);
+            }
+        }
+
+        assertEquals(grades(reference.findAll()), grades(columnar.findAll()));
+        assertEquals(grades(reference.findByStudent("s7")), grades(columnar.findByStudent("s7")));
+        assertEquals(grades(reference.findByTema("t3")), grades(columnar.findByTema("t3")));
+    }
+
+    @Test
+    public void findOne_MaterializesCopy() throws Exception {
+        ColumnarNotaRepository repository = new ColumnarNotaRepository(new NotaValidator());
+        repository.save(nota("1", "1", 9));
+
+        Nota found = repository.findOne(new Pair<>("1", "1"));
+        found.setNota(2);
+
+        assertEquals(9, repository.findOne(new Pair<>("1", "1")).getNota());
+        assertEquals("feedback 11", found.getFeedback());
+        assertNull(repository.findOne(new Pair<>("1", "necunoscut")));
+        assertThrows(IllegalArgumentException.class, () -> repository.findOne(null));
+    }
+
+    @Test
+    public void bulkOperations_ReportFailures() {
+        ColumnarNotaRepository repository = new ColumnarNotaRepository(new NotaValidator());
+
+        BulkResult<Nota> saved = repository.saveAll(Arrays.asList(nota("1", "1", 9), nota("1", "1", 8),
+                nota("1", "2", 11), null, nota("2", "1", 7)));
+        assertEquals(2, saved.getSucceeded().size());
+        assertEquals(3, saved.getFailed().size());
+
+        BulkResult<Pair<String, String>> deleted = repository.deleteAll(Arrays.asList(new Pair<>("1", "1"),
+                new Pair<>("1", "1"), null));
+        assertEquals(1, deleted.getSucceeded().size());
+        assertEquals(2, deleted.getFailed().size());
+        assertEquals(1, repository.size());
+    }
+
+    @Test
+    public void findAll_RepositoryChanged_FailsFast() throws Exception {
+        ColumnarNotaRepository repository = new ColumnarNotaRepository(new NotaValidator());
+        repository.save(nota("1", "1", 9));
+        Iterator<Nota> iterator = repository.findAll().iterator();
+
+        repository.save(nota("1", "2", 9));
+
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    public void findAfter_And_ParallelStream_MatchNotaRepository() throws Exception {
+        ColumnarNotaRepository columnar = new ColumnarNotaRepository(new NotaValidator());
+        NotaRepository reference = new NotaRepository(new NotaValidator());
+        Random random = new Random(3);
+        for (int i = 0; i < 2_000; i++) {
+            Nota nota = nota("s" + random.nextInt(50), "t" + random.nextInt(20), random.nextInt(11));
+            if (reference.findOne(nota.getID()) == null) {
+                columnar.save(nota);
+                reference.save(nota);
+            }
+        }
+
+        List<Pair<String, String>> pages = new ArrayList<>();
+        Pair<String, String> lastId = null;
+        List<Nota> page;
+        while (!(page = columnar.findAfter(lastId, 64)).isEmpty()) {
+            assertEquals(reference.findAfter(lastId, 64).stream().map(Nota::getID).collect(Collectors.toList()),
+                    page.stream().map(Nota::getID).collect(Collectors.toList()));
+            page.forEach(nota -> pages.add(nota.getID()));
+            lastId = page.get(page.size() - 1).getID();
+        }
+
+        assertEquals(columnar.size(), pages.size());
+        assertEquals(grades(reference.findAll()), columnar.stream().parallel()
+                .collect(Collectors.toMap(Nota::getID, Nota::getNota)));
+    }
+
+    @Test
+    public void churn_DeletedIdsForgotten_CodesReused() {
+        ColumnarNotaRepository repository = new ColumnarNotaRepository(new NotaValidator());
+        for (int i = 0; i < 1000; i++) {
+            Nota nota = nota("s" + i, "t" + i, 9);
+            assertDoesNotThrow(() -> repository.save(nota));
+            assertEquals(nota.getNota(), repository.delete(nota.getID()).getNota());
+        }
+        assertDoesNotThrow(() -> repository.save(nota("s1", "t1", 7)));
+        assertDoesNotThrow(() -> repository.save(nota("s2", "t1", 8)));
+
+        assertEquals(7, repository.findOne(new Pair<>("s1", "t1")).getNota());
+        assertEquals(2, repository.findByTema("t1").size());
+        assertNull(repository.findOne(new Pair<>("s999", "t999")));
+
+        IdDictionary dictionary = new IdDictionary();
+        int code = dictionary.acquire("s1");
+        assertEquals(code, dictionary.acquire("s1"));
+        dictionary.release(code);
+        assertEquals(code, dictionary.codeOf("s1"));
+        dictionary.release(code);
+        assertEquals(-1, dictionary.codeOf("s1"));
+        assertEquals(0, dictionary.size());
+        assertEquals(code, dictionary.acquire("s2"));
+        assertEquals("s2", dictionary.decode(code));
+    }
+}
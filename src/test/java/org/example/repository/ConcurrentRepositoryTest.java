@@ -0,0 +1,139 @@
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentRepositoryTest {
+    private static final String XML_PATH = "students_concurrent_test.xml";
+    private static final String TXT_PATH = "students_concurrent_test.txt";
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 250;
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        new File(XML_PATH + ".wal").delete();
+        try (FileWriter fileWriter = new FileWriter(XML_PATH)) {
+            fileWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>");
+        }
+        new FileWriter(TXT_PATH).close();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(XML_PATH).delete();
+        new File(XML_PATH + ".wal").delete();
+        new File(XML_PATH + StoreLock.EXTENSION).delete();
+        new File(TXT_PATH).delete();
+        new File(TXT_PATH + StoreLock.EXTENSION).delete();
+    }
+
+    /**
+     * Runs the work on every thread at once while another thread keeps reading the repository.
+     */
+    private void runConcurrently(CRUDRepository<String, Student> repository, Work work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            Future<Integer> reader = executor.submit(() -> {
+                start.await();
+                int reads = 0;
+                while (!done.get()) {
+                    for (Student student : repository.findAll()) {
+                        assertNotNull(repository.findOne(student.getID()).getNume());
+                        reads++;
+                    }
+                }
+                return reads;
+            });
+
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int id = thread;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    work.run(id);
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int count(CRUDRepository<String, Student> repository) {
+        int count = 0;
+        for (Student ignored : repository.findAll()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void save_ConcurrentThreads_NoLostWrites() throws Exception {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), XML_PATH);
+        repository.setCheckpointInterval(100);
+
+        runConcurrently(repository, thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                repository.save(new Student(thread + "-" + i, "student " + i, 935));
+            }
+        });
+        repository.flush();
+
+        assertEquals(THREADS * PER_THREAD, count(repository));
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), XML_PATH);
+        assertEquals(THREADS * PER_THREAD, count(reopened));
+    }
+
+    @Test
+    public void update_ConcurrentThreads_LastWritePersisted() throws Exception {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), TXT_PATH);
+        repository.setLogStructured(true);
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < 10; i++) {
+                repository.save(new Student(thread + "-" + i, "initial", 935));
+            }
+        }
+
+        runConcurrently(repository, thread -> {
+            for (int round = 0; round < PER_THREAD / 10; round++) {
+                for (int i = 0; i < 10; i++) {
+                    assertNotNull(repository.update(new Student(thread + "-" + i, "round " + round, 935)));
+                }
+            }
+        });
+        repository.flush();
+
+        StudentFileRepository reopened = new StudentFileRepository(new StudentValidator(), TXT_PATH);
+        assertEquals(THREADS * 10, count(reopened));
+        for (Student student : reopened.findAll()) {
+            assertEquals("round " + (PER_THREAD / 10 - 1), student.getNume());
+            assertEquals(student.getNume(), repository.findOne(student.getID()).getNume());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.domain.Student;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GradeAggregatesTest {
+    private StudentRepository studenti;
+    private NotaRepository note;
+    private GradeAggregates aggregates;
+
+    private static Nota nota(String student, String tema, double value) {
+        return new Nota(new Pair<>(student, tema), value, 5, "ok");
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        studenti = new StudentRepository(new StudentValidator());
+        note = new NotaRepository(new NotaValidator());
+        studenti.save(new Student("1", "ana", 221));
+        studenti.save(new Student("2", "ion", 221));
+        note.save(nota("1", "1", 10));
+        note.save(nota("1", "2", 6));
+        note.save(nota("2", "1", 7));
+
+        aggregates = new GradeAggregates();
+        studenti.addListener(aggregates.getStudentListener());
+        note.addListener(aggregates.getGradeListener());
+    }
+
+    @Test
+    public void stats_FollowSaveUpdateAndDelete() throws Exception {
+        assertEquals(8, aggregates.getStudentStats("1").getAverage());
+        assertEquals(7, aggregates.getTemaStats("1").getMin());
+        assertEquals(10, aggregates.getTemaStats("1").getMax());
+        assertEquals(3, aggregates.getGrupaStats(221).getCount());
+
+        note.update(nota("1", "1", 4));
+        note.delete(new Pair<>("2", "1"));
+        note.save(nota("2", "2", 9));
+
+        assertEquals(5, aggregates.getStudentStats("1").getAverage());
+        assertEquals(4, aggregates.getTemaStats("1").getMax());
+        assertEquals(1, aggregates.getTemaStats("1").getCount());
+        assertEquals(9, aggregates.getTemaStats("2").getMax());
+        assertEquals(19.0 / 3, aggregates.getGrupaStats(221).getAverage(), 1e-9);
+        assertTrue(Double.isNaN(aggregates.getStudentStats("3").getAverage()));
+    }
+
+    @Test
+    public void grupaStats_FollowStudents() {
+        studenti.update(new Student("2", "ion", 222));
+
+        assertEquals(8, aggregates.getGrupaStats(221).getAverage());
+        assertEquals(7, aggregates.getGrupaStats(222).getAverage());
+
+        studenti.delete("1");
+
+        assertEquals(0, aggregates.getGrupaStats(221).getCount());
+        assertEquals(2, aggregates.getStudentStats("1").getCount());
+    }
+
+    @Test
+    public void verify_RandomChanges_MatchRecomputation() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            String idStudent = String.valueOf(random.nextInt(30));
+            int operation = random.nextInt(5);
+            if (operation == 0) {
+                Student student = new Student(idStudent, "student", 221 + random.nextInt(4));
+                if (studenti.update(student) == null) {
+                    studenti.save(student);
+                }
+            } else if (operation == 1) {
+                studenti.delete(idStudent);
+            } else {
+                Nota nota = nota(idStudent, String.valueOf(random.nextInt(10)), random.nextInt(21) / 2.0);
+                if (note.update(nota) == null && random.nextBoolean()) {
+                    note.save(nota);
+                } else if (operation == 4) {
+                    note.delete(nota.getID());
+                }
+            }
+        }
+
+        assertEquals(0, aggregates.verify(note.findAll(), studenti.findAll()).size());
+    }
+
+    @Test
+    public void verify_StaleAggregate_Reported() throws Exception {
+        note.removeListener(aggregates.getGradeListener());
+        note.save(nota("2", "2", 5));
+
+        assertEquals(3, aggregates.verify(note.findAll(), studenti.findAll()).size());
+    }
+}
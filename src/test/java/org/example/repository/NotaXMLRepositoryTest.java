@@ -0,0 +1,91 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.validation.NotaValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotaXMLRepositoryTest {
+    private static final String GRADES_PATH = "grades_repository_test.xml";
+
+    private NotaXMLRepository repository;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        new File(GRADES_PATH + ".wal").delete();
+        try (FileWriter fileWriter = new FileWriter(GRADES_PATH)) {
+            fileWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>");
+        }
+        repository = new NotaXMLRepository(new NotaValidator(), GRADES_PATH);
+        repository.saveAll(Arrays.asList(
+                new Nota(new Pair<>("1", "1"), 10, 7, "bine"),
+                new Nota(new Pair<>("1", "2"), 8, 8, "ok"),
+                new Nota(new Pair<>("2", "1"), 6, 9, "slab")));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(GRADES_PATH).delete();
+        new File(GRADES_PATH + ".wal").delete();
+        new File(GRADES_PATH + StoreLock.EXTENSION).delete();
+    }
+
+    @Test
+    public void findByStudent_AfterSave() {
+        assertEquals(2, repository.findByStudent("1").size());
+        assertEquals(1, repository.findByStudent("2").size());
+        assertTrue(repository.findByStudent("3").isEmpty());
+    }
+
+    @Test
+    public void findByTema_AfterUpdateAndDelete() {
+        repository.update(new Nota(new Pair<>("1", "1"), 4, 7, "refacut"));
+        repository.delete(new Pair<>("2", "1"));
+
+        assertEquals(1, repository.findByTema("1").size());
+        assertEquals(4, repository.findByTema("1").get(0).getNota());
+        assertEquals(1, repository.findByTema("2").size());
+    }
+
+    @Test
+    public void indexes_RebuiltOnReload() {
+        repository.delete(new Pair<>("1", "2"));
+
+        NotaXMLRepository reopened = new NotaXMLRepository(new NotaValidator(), GRADES_PATH);
+
+        assertEquals(1, reopened.findByStudent("1").size());
+        assertEquals(2, reopened.findByTema("1").size());
+        assertTrue(reopened.findByTema("2").isEmpty());
+    }
+
+    @Test
+    public void findOne_ByIds_MatchesPairLookupWithoutAllocating() {
+        repository.update(new Nota(new Pair<>("1", "2"), 9, 8, "refacut"));
+        repository.delete(new Pair<>("2", "1"));
+
+        assertSame(repository.findOne(new Pair<>("1", "2")), repository.findOne("1", "2"));
+        assertNull(repository.findOne("2", "1"));
+        assertNull(repository.findOne("necunoscut", "1"));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 100_000; i++) {
+            repository.findOne("1", "1");
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            repository.findOne("1", "1");
+        }
+        assertTrue(threads.getThreadAllocatedBytes(threadId) - before < 10_000);
+    }
+}
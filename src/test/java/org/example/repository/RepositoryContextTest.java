@@ -0,0 +1,43 @@
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepositoryContextTest {
+    @Test
+    public void get_OpensStoreOnceOnFirstUse() {
+        RepositoryContext context = new RepositoryContext();
+        int[] opened = {0};
+        context.register(RepositoryContext.STUDENTI, () -> {
+            opened[0]++;
+            return new StudentRepository(new StudentValidator());
+        });
+        assertFalse(context.isOpen(RepositoryContext.STUDENTI));
+
+        StudentRepository first = context.get(RepositoryContext.STUDENTI);
+        StudentRepository second = context.get(RepositoryContext.STUDENTI);
+
+        assertSame(first, second);
+        assertEquals(1, opened[0]);
+        assertTrue(context.isOpen(RepositoryContext.STUDENTI));
+        assertThrows(IllegalStateException.class,
+                () -> context.register(RepositoryContext.STUDENTI, new StudentRepository(new StudentValidator())));
+        assertThrows(IllegalArgumentException.class, () -> context.get(RepositoryContext.TEME));
+    }
+
+    @Test
+    public void register_OpenRepository_SharedAsIs() throws Exception {
+        RepositoryContext context = new RepositoryContext();
+        StudentRepository students = new StudentRepository(new StudentValidator());
+        students.save(new Student("1", "ana", 221));
+
+        context.register(RepositoryContext.STUDENTI, students);
+
+        CRUDRepository<String, Student> found = context.get(RepositoryContext.STUDENTI);
+        assertSame(students, found);
+        assertEquals("ana", found.findOne("1").getNume());
+    }
+}
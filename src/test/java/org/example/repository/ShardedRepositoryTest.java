@@ -0,0 +1,193 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.domain.Pair;
+import org.example.domain.Student;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedRepositoryTest {
+    private static final String STUDENTS_PATH = "students_sharded_test.txt";
+    private static final String GRADES_PATH = "grades_sharded_test.xml";
+
+    private static ShardedRepository<String, Student> openStudenti(int shards) {
+        return new ShardedRepository<>(shards, shard -> new StudentFileRepository(new StudentValidator(),
+                ShardedRepository.shardFile(STUDENTS_PATH, shard)));
+    }
+
+    private static List<Student> studenti(int count) {
+        List<Student> studenti = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            studenti.add(new Student(String.format("%03d", i), "student " + i, 221));
+        }
+        return studenti;
+    }
+
+    @BeforeEach
+    @AfterEach
+    public void deleteFiles() {
+        for (int shard = 0; shard < 8; shard++) {
+            new File(ShardedRepository.shardFile(STUDENTS_PATH, shard)).delete();
+            new File(ShardedRepository.shardFile(GRADES_PATH, shard)).delete();
+            new File(ShardedRepository.shardFile(GRADES_PATH, shard) + ".wal").delete();
+            new File(ShardedRepository.shardFile(STUDENTS_PATH, shard) + StoreLock.EXTENSION).delete();
+            new File(ShardedRepository.shardFile(GRADES_PATH, shard) + StoreLock.EXTENSION).delete();
+        }
+    }
+
+    @Test
+    public void shardFile_IndexBeforeExtensions() {
+        assertEquals("note.3.xml.gz", ShardedRepository.shardFile("note.xml.gz", 3));
+        assertEquals("date/note.0.txt", ShardedRepository.shardFile("date/note.txt", 0));
+        assertEquals("note.1", ShardedRepository.shardFile("note", 1));
+    }
+
+    @Test
+    public void update_WritesOnlyItsShard() {
+        ShardedRepository<String, Student> repository = openStudenti(4);
+        assertEquals(0, repository.saveAll(studenti(100)).getFailed().size());
+        long[] sizes = new long[4];
+        for (int shard = 0; shard < 4; shard++) {
+            sizes[shard] = new File(ShardedRepository.shardFile(STUDENTS_PATH, shard)).length();
+            assertTrue(sizes[shard] > 0);
+        }
+
+        repository.update(new Student("042", "student 42 popescu", 221));
+        repository.flush();
+
+        int changed = 0;
+        for (int shard = 0; shard < 4; shard++) {
+            if (new File(ShardedRepository.shardFile(STUDENTS_PATH, shard)).length() != sizes[shard]) {
+                changed++;
+            }
+        }
+        assertEquals(1, changed);
+        ShardedRepository<String, Student> reopened = openStudenti(4);
+        reopened.load();
+        assertEquals("student 42 popescu", reopened.findOne("042").getNume());
+        assertEquals(100, reopened.stream().count());
+    }
+
+    @Test
+    public void findAfter_MergesShardsInIdOrder() {
+        ShardedRepository<String, Student> repository = openStudenti(3);
+        repository.saveAll(studenti(25));
+
+        List<String> ids = new ArrayList<>();
+        List<Student> page = repository.findAfter(null, 4);
+        while (!page.isEmpty()) {
+            page.forEach(student -> ids.add(student.getID()));
+            page = repository.findAfter(page.get(page.size() - 1).getID(), 4);
+        }
+
+        assertEquals(studenti(25).stream().map(Student::getID).collect(Collectors.toList()), ids);
+    }
+
+    @Test
+    public void bulkOperations_FailuresReported() {
+        ShardedRepository<String, Student> repository = openStudenti(3);
+        repository.saveAll(studenti(10));
+
+        BulkResult<Student> saved = repository.saveAll(Arrays.asList(new Student("001", "duplicat", 221),
+                null, new Student("100", "ion", 222)));
+        BulkResult<String> deleted = repository.deleteAll(Arrays.asList("002", "999"));
+
+        assertEquals(1, saved.getSucceeded().size());
+        assertEquals(2, saved.getFailed().size());
+        assertEquals(List.of("002"), deleted.getSucceeded());
+        assertEquals(1, deleted.getFailed().size());
+        assertNull(repository.findOne("002"));
+        assertEquals(10, repository.stream().count());
+    }
+
+    @Test
+    public void byStudent_GradesOfAStudentInOneShard() {
+        ShardedRepository<Pair<String, String>, Nota> note = new ShardedRepository<>(4,
+                shard -> new NotaFileRepository(new NotaValidator(), ShardedRepository.shardFile("grades_sharded_test.txt", shard)),
+                ShardedRepository.byStudent());
+        try {
+            for (int tema = 0; tema < 6; tema++) {
+                Nota nota = new Nota(new Pair<>("s1", "t" + tema), 9, 7, "ok");
+                assertDoesNotThrow(() -> note.save(nota));
+            }
+            NotaFileRepository shard = (NotaFileRepository) note.shardOf(new Pair<>("s1", "t0"));
+            assertEquals(6, shard.findByStudent("s1").size());
+        } finally {
+            note.close();
+            for (int shard = 0; shard < 4; shard++) {
+                new File(ShardedRepository.shardFile("grades_sharded_test.txt", shard)).delete();
+                new File(ShardedRepository.shardFile("grades_sharded_test.txt", shard) + StoreLock.EXTENSION).delete();
+            }
+        }
+    }
+
+    @Test
+    public void reshard_AllEntitiesMoved_OldShardsRemoved() throws IOException {
+        ShardedRepository<String, Student> repository = openStudenti(3);
+        repository.saveAll(studenti(50));
+        repository.close();
+
+        int moved = Resharder.reshard(STUDENTS_PATH, 3, 5, file -> new StudentFileRepository(new StudentValidator(), file),
+                String::hashCode);
+
+        assertEquals(50, moved);
+        ShardedRepository<String, Student> resharded = openStudenti(5);
+        assertEquals(50, resharded.stream().count());
+        for (Student student : studenti(50)) {
+            assertNotNull(resharded.shardOf(student.getID()).findOne(student.getID()));
+        }
+
+        Resharder.reshard(STUDENTS_PATH, 5, 2, file -> new StudentFileRepository(new StudentValidator(), file),
+                String::hashCode);
+        assertFalse(new File(ShardedRepository.shardFile(STUDENTS_PATH, 4)).exists());
+        assertEquals(50, openStudenti(2).stream().count());
+    }
+
+    @Test
+    public void reshard_MoreShardsThanGiven_RefusedAndKept() throws IOException {
+        ShardedRepository<String, Student> repository = openStudenti(3);
+        repository.saveAll(studenti(30));
+        repository.close();
+
+        assertThrows(IOException.class, () -> Resharder.reshard(STUDENTS_PATH, 2, 4,
+                file -> new StudentFileRepository(new StudentValidator(), file), String::hashCode));
+        assertEquals(30, openStudenti(3).stream().count());
+        assertFalse(new File(ShardedRepository.shardFile(STUDENTS_PATH, 3)).exists());
+
+        Resharder.reshard(STUDENTS_PATH, 3, 4, file -> new StudentFileRepository(new StudentValidator(), file),
+                String::hashCode);
+        assertEquals(30, openStudenti(4).stream().count());
+        String[] backups = new File(".").list((directory, name) -> name.startsWith(STUDENTS_PATH + ".backup"));
+        assertEquals(0, backups.length);
+    }
+
+    @Test
+    public void reshard_XmlShards_CheckpointedAndMoved() throws IOException {
+        ShardedRepository<Pair<String, String>, Nota> note = new ShardedRepository<>(1,
+                shard -> Resharder.openNote(ShardedRepository.shardFile(GRADES_PATH, shard)), ShardedRepository.byStudent());
+        for (int i = 0; i < 20; i++) {
+            Nota nota = new Nota(new Pair<>("s" + i % 5, "t" + i), 8, 7, "ok");
+            assertDoesNotThrow(() -> note.save(nota));
+        }
+        note.close();
+
+        assertEquals(20, Resharder.reshard(GRADES_PATH, 1, 3, Resharder::openNote, ShardedRepository.byStudent()));
+
+        ShardedRepository<Pair<String, String>, Nota> resharded = new ShardedRepository<>(3,
+                shard -> Resharder.openNote(ShardedRepository.shardFile(GRADES_PATH, shard)), ShardedRepository.byStudent());
+        assertEquals(20, resharded.stream().count());
+        assertEquals(4, ((NotaXMLRepository) resharded.shardOf(new Pair<>("s2", "t2"))).findByStudent("s2").size());
+    }
+}
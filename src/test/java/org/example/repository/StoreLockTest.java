@@ -0,0 +1,98 @@
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreLockTest {
+    private static final String STUDENTS_PATH = "students_lock_test.txt";
+
+    /**
+     * Holds the lock of a store from another process until a line is read from its standard input.
+     */
+    public static class Holder {
+        public static void main(String[] args) throws IOException {
+            try (FileChannel channel = FileChannel.open(Paths.get(args[0] + StoreLock.EXTENSION),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                System.out.println("locked");
+                System.out.flush();
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(STUDENTS_PATH).delete();
+        new File(STUDENTS_PATH + StoreLock.EXTENSION).delete();
+    }
+
+    @Test
+    public void persist_StoreLockedByAnotherProcess_WaitsForIt() throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process holder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Holder.class.getName(), STUDENTS_PATH).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(holder.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("locked", output.readLine());
+
+            StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+            CompletableFuture<Void> save = CompletableFuture.runAsync(() -> {
+                assertDoesNotThrow(() -> repository.save(new Student("1", "ana", 221)));
+                repository.flush();
+            });
+            Thread.sleep(300);
+            assertFalse(save.isDone());
+            assertFalse(new File(STUDENTS_PATH).exists());
+
+            try (OutputStream input = holder.getOutputStream()) {
+                input.write('\n');
+            }
+            save.get(10, TimeUnit.SECONDS);
+            assertEquals("ana", new StudentFileRepository(new StudentValidator(), STUDENTS_PATH).findOne("1").getNume());
+        } finally {
+            holder.destroy();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void acquire_ReentrantAndSharedWithinProcess() throws Exception {
+        StoreLock lock = StoreLock.of(STUDENTS_PATH);
+        assertSame(lock, StoreLock.of(new File(STUDENTS_PATH).getAbsolutePath()));
+
+        try (StoreLock.Held outer = lock.acquire(); StoreLock.Held inner = lock.acquire()) {
+            CompletableFuture<Void> other = CompletableFuture.runAsync(() -> {
+                try (StoreLock.Held held = lock.acquire()) {
+                    assertNotNull(held);
+                } catch (IOException ioe) {
+                    fail(ioe);
+                }
+            });
+            Thread.sleep(100);
+            assertFalse(other.isDone());
+            inner.close();
+            Thread.sleep(100);
+            assertFalse(other.isDone());
+            outer.close();
+            other.get(10, TimeUnit.SECONDS);
+        }
+    }
+}
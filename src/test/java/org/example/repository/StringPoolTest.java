@@ -0,0 +1,72 @@
+package org.example.repository;
+
+import org.example.domain.Nota;
+import org.example.validation.NotaValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringPoolTest {
+    private static final String GRADES_PATH = "grades_pool_test.txt";
+
+    @AfterEach
+    public void tearDown() {
+        new File(GRADES_PATH).delete();
+    }
+
+    @Test
+    public void intern_EqualStrings_SharedAndCounted() {
+        StringPool pool = new StringPool(64);
+        String first = pool.intern(new String("bine"));
+        String second = pool.intern(new String("bine"));
+
+        assertSame(first, second);
+        assertEquals(1, pool.getHits());
+        assertEquals(44, pool.getBytesSaved());
+        assertSame(first, pool.intern(first));
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    public void intern_Bounded_NeverHoldsMoreThanCapacity() {
+        StringPool pool = new StringPool(4);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("id" + i, pool.intern("id" + i));
+        }
+
+        assertEquals(4, pool.getCapacity());
+        assertNull(new StringPool(0).intern(null));
+        String value = new String("ok");
+        assertSame(value, new StringPool(0).intern(value));
+    }
+
+    @Test
+    public void loadFromFile_RepeatedValues_Deduplicated() throws IOException {
+        try (FileWriter fileWriter = new FileWriter(GRADES_PATH)) {
+            fileWriter.write("1#1#10.0#7#bine\n1#2#9.0#8#bine\n2#1#8.0#8#bine\n");
+        }
+        StringPool pool = new StringPool(64);
+        StringPool previous = StringPool.shared();
+        StringPool.setShared(pool);
+        try {
+            NotaFileRepository repository = new NotaFileRepository(new NotaValidator(), GRADES_PATH);
+            List<Nota> note = new ArrayList<>();
+            repository.findAll().forEach(note::add);
+
+            assertEquals(3, note.size());
+            assertSame(note.get(0).getFeedback(), note.get(1).getFeedback());
+            assertSame(note.get(0).getFeedback(), note.get(2).getFeedback());
+            assertTrue(pool.getHits() >= 4);
+            assertTrue(pool.getBytesSaved() > 0);
+        } finally {
+            StringPool.setShared(previous);
+        }
+    }
+}
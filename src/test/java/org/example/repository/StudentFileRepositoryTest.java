@@ -0,0 +1,321 @@
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudentFileRepositoryTest {
+    private static final String STUDENTS_PATH = "students_repository_test.txt";
+    private static final String COMPRESSED_PATH = "students_repository_test.txt.gz";
+
+    private void writeLines(String content, boolean append) throws IOException {
+        try (FileWriter fileWriter = new FileWriter(STUDENTS_PATH, append)) {
+            fileWriter.write(content);
+        }
+    }
+
+    private List<Student> findAll(StudentFileRepository repository) {
+        List<Student> students = new ArrayList<>();
+        repository.findAll().forEach(students::add);
+        return students;
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        writeLines("1#ana#221\n2#maria#222\n1#ana#221\n", false);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(STUDENTS_PATH).delete();
+        new File(COMPRESSED_PATH).delete();
+        new File(STUDENTS_PATH + StoreLock.EXTENSION).delete();
+        new File(COMPRESSED_PATH + StoreLock.EXTENSION).delete();
+    }
+
+    @Test
+    public void load_DuplicateLines_LastLineWins() {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+
+        assertEquals(2, findAll(repository).size());
+    }
+
+    @Test
+    public void findAll_AppendedLines_OnlyTailParsed() throws IOException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        Student ana = repository.findOne("1");
+
+        writeLines("3#ion#223\n", true);
+
+        assertEquals(3, findAll(repository).size());
+        assertSame(ana, repository.findOne("1"));
+    }
+
+    @Test
+    public void findAll_RewrittenFile_FullReparse() throws IOException, InterruptedException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+
+        Thread.sleep(10);
+        writeLines("4#vasile#224\n", false);
+
+        List<Student> students = findAll(repository);
+        assertEquals(1, students.size());
+        assertEquals("4", students.get(0).getID());
+    }
+
+    @Test
+    public void watched_AppendedByAnotherProcess_ReadOnNextAccess() throws IOException, InterruptedException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setWatched(true);
+        assertNull(repository.findOne("3"));
+
+        writeLines("3#ion#223\n", true);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (repository.findOne("3") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("ion", repository.findOne("3").getNume());
+        repository.close();
+    }
+
+    @Test
+    public void findAll_ReplacedByLongerFile_FullReparse() throws IOException {
+        writeLines("1#ana#221\n", false);
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNotNull(repository.findOne("1"));
+
+        Path replacement = Paths.get(STUDENTS_PATH + ".new");
+        Files.write(replacement, "2#bogdan#222\n3#ciprian#223\n".getBytes(StandardCharsets.UTF_8));
+        Files.move(replacement, Paths.get(STUDENTS_PATH), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<String> ids = findAll(repository).stream().map(Student::getID).sorted().collect(Collectors.toList());
+        assertEquals(List.of("2", "3"), ids);
+    }
+
+    @Test
+    public void compressed_RewrittenLonger_FullReparse() throws IOException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), COMPRESSED_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "ana", 221)));
+        repository.flush();
+        assertEquals(1, findAll(repository).size());
+
+        try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(COMPRESSED_PATH, false))) {
+            out.write("2#bogdan#222\n3#ciprian#223\n4#dan#224\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<String> ids = findAll(repository).stream().map(Student::getID).sorted().collect(Collectors.toList());
+        assertEquals(List.of("2", "3", "4"), ids);
+    }
+
+    @Test
+    public void load_LastLineWithoutLineBreak_Parsed() throws IOException {
+        writeLines("4#dan#224", false);
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("dan", repository.findOne("4").getNume());
+
+        assertDoesNotThrow(() -> repository.save(new Student("5", "elena", 225)));
+        repository.flush();
+
+        assertEquals(List.of("4#dan#224", "5#elena#225"), Files.readAllLines(Paths.get(STUDENTS_PATH)));
+        StudentFileRepository reopened = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals(2, findAll(reopened).size());
+    }
+
+    @Test
+    public void findAll_OwnWrites_NotReparsed() {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        Student ion = new Student("3", "ion", 223);
+        assertDoesNotThrow(() -> repository.save(ion));
+        repository.update(new Student("2", "maria popescu", 222));
+        Student maria = repository.findOne("2");
+
+        assertEquals(3, findAll(repository).size());
+        assertSame(ion, repository.findOne("3"));
+        assertSame(maria, repository.findOne("2"));
+        repository.flush();
+    }
+
+    @Test
+    public void update_FileReplacedBySnapshot() throws IOException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.update(new Student("2", "maria popescu", 222));
+        assertDoesNotThrow(() -> repository.save(new Student("3", "ion", 223)));
+
+        repository.flush();
+
+        assertEquals(3, Files.readAllLines(Paths.get(STUDENTS_PATH)).size());
+        assertFalse(Files.exists(StoreLock.temporaryFile(Paths.get(STUDENTS_PATH))));
+        StudentFileRepository reopened = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("maria popescu", reopened.findOne("2").getNume());
+        assertNotNull(reopened.findOne("3"));
+    }
+
+    @Test
+    public void findAll_LargeFile_ParsedInChunks_LastLineWins() throws IOException, InterruptedException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(i % 100).append("#student ").append(i).append("#221\n");
+            if (i == 1000) {
+                content.append("x#y#grupa\n");
+            }
+        }
+        content.append("#5#student 1905#221\n");
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setLoadChunkSize(256);
+
+        Thread.sleep(10);
+        writeLines(content.toString(), false);
+
+        List<Student> students = findAll(repository);
+        assertEquals(99, students.size());
+        assertNull(repository.findOne("5"));
+        for (Student student : students) {
+            assertEquals("student " + (1900 + Integer.parseInt(student.getID())), student.getNume());
+        }
+        assertEquals(0.95, repository.getGarbageRatio(), 0.001);
+    }
+
+    @Test
+    public void findAll_PartialLine_ParsedOnceCompleted() throws IOException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals(2, findAll(repository).size());
+
+        writeLines("3#ion#2", true);
+        assertEquals(2, findAll(repository).size());
+
+        writeLines("23\n", true);
+        assertEquals(3, findAll(repository).size());
+        assertEquals(223, repository.findOne("3").getGrupa());
+    }
+
+    @Test
+    public void logStructured_DeleteAndUpdate_AppendRecords() {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setLogStructured(true);
+        long size = new File(STUDENTS_PATH).length();
+
+        repository.update(new Student("1", "ana popescu", 221));
+        repository.delete("2");
+        assertTrue(new File(STUDENTS_PATH).length() > size);
+
+        StudentFileRepository reopened = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        List<Student> students = findAll(reopened);
+        assertEquals(1, students.size());
+        assertEquals("ana popescu", students.get(0).getNume());
+    }
+
+    @Test
+    public void logStructured_Compact_KeepsOneRecordPerEntity() {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setLogStructured(true);
+        for (int i = 0; i < 10; i++) {
+            repository.update(new Student("1", "ana " + i, 221));
+        }
+        assertTrue(repository.getGarbageRatio() > 0.5);
+
+        repository.compact();
+
+        assertEquals(0, repository.getGarbageRatio());
+        StudentFileRepository reopened = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals(2, findAll(reopened).size());
+        assertEquals("ana 9", reopened.findOne("1").getNume());
+    }
+
+    @Test
+    public void groupCommit_RecordCountTriggersSingleWrite() {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setFlushPolicy(FlushPolicy.groupCommit(60_000, 3, 0));
+        long size = new File(STUDENTS_PATH).length();
+
+        assertDoesNotThrow(() -> repository.save(new Student("3", "ion", 223)));
+        assertDoesNotThrow(() -> repository.save(new Student("4", "vasile", 224)));
+        assertEquals(size, new File(STUDENTS_PATH).length());
+
+        assertDoesNotThrow(() -> repository.save(new Student("5", "gelu", 225)));
+        assertTrue(new File(STUDENTS_PATH).length() > size);
+
+        StudentFileRepository reopened = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals(5, findAll(reopened).size());
+    }
+
+    @Test
+    public void streamFromFile_PendingChangesWritten_InvalidLinesSkipped() throws IOException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setFlushPolicy(FlushPolicy.groupCommit(60_000, 100, 0));
+        assertDoesNotThrow(() -> repository.save(new Student("3", "ion", 223)));
+        writeLines("corupt\n", true);
+
+        try (Stream<Student> students = repository.streamFromFile()) {
+            assertEquals(List.of("1", "2", "1", "3"), students.map(Student::getID).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void findAfter_PagesInIdOrder() throws IOException {
+        writeLines("5#ion#223\n3#vasile#224\n4#gelu#225\n", true);
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENTS_PATH);
+
+        List<String> ids = new ArrayList<>();
+        List<Student> page = repository.findAfter(null, 2);
+        while (!page.isEmpty()) {
+            page.forEach(student -> ids.add(student.getID()));
+            page = repository.findAfter(page.get(page.size() - 1).getID(), 2);
+        }
+
+        assertEquals(List.of("1", "2", "3", "4", "5"), ids);
+        assertEquals(5, repository.findPage(0, 10).size());
+        assertEquals(1, repository.findPage(4, 10).size());
+        assertEquals(5, repository.stream().parallel().count());
+    }
+
+    @Test
+    public void compressed_AppendsAndCompaction_ReadBack() throws IOException {
+        StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), COMPRESSED_PATH);
+        repository.setLogStructured(true);
+        assertTrue(repository.isCompressed());
+        assertDoesNotThrow(() -> repository.save(new Student("1", "ana", 221)));
+        assertDoesNotThrow(() -> repository.save(new Student("2", "maria", 222)));
+        repository.update(new Student("1", "ana popescu", 221));
+
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(COMPRESSED_PATH))) {
+            assertEquals("1#ana#221\n2#maria#222\n1#ana popescu#221\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        StudentFileRepository reopened = new StudentFileRepository(new StudentValidator(), COMPRESSED_PATH);
+        assertEquals("ana popescu", reopened.findOne("1").getNume());
+
+        assertDoesNotThrow(() -> repository.save(new Student("3", "ion", 223)));
+        assertEquals(3, findAll(reopened).size());
+
+        repository.compact();
+        assertEquals(0, repository.getGarbageRatio());
+        try (Stream<Student> students = repository.streamFromFile()) {
+            assertEquals(List.of("1", "2", "3"), students.map(Student::getID).sorted().collect(Collectors.toList()));
+        }
+        StudentFileRepository compacted = new StudentFileRepository(new StudentValidator(), COMPRESSED_PATH);
+        assertEquals(3, findAll(compacted).size());
+        assertEquals("ana popescu", compacted.findOne("1").getNume());
+    }
+}
@@ -0,0 +1,295 @@
+package org.example.repository;
+
+import org.example.domain.Student;
+import org.example.metrics.MetricsRegistry;
+import org.example.validation.StudentValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudentXMLRepositoryTest {
+    private static final String STUDENTS_PATH = "students_repository_test.xml";
+    private static final String COMPRESSED_PATH = "students_repository_test.xml.gz";
+
+    private void createXMLFile(String fileName) throws IOException {
+        try (FileWriter fileWriter = new FileWriter(fileName)) {
+            fileWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>");
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        new File(STUDENTS_PATH + ".wal").delete();
+        createXMLFile(STUDENTS_PATH);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(STUDENTS_PATH).delete();
+        new File(STUDENTS_PATH + ".wal").delete();
+        new File(COMPRESSED_PATH).delete();
+        new File(COMPRESSED_PATH + ".wal").delete();
+        new File(STUDENTS_PATH + StoreLock.EXTENSION).delete();
+        new File(COMPRESSED_PATH + StoreLock.EXTENSION).delete();
+    }
+
+    private void awaitName(StudentXMLRepository repository, String id, String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!name.equals(repository.findOne(id).getNume()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(name, repository.findOne(id).getNume());
+    }
+
+    @Test
+    public void mutations_ReplayedFromLog_BeforeCheckpoint() {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        repository.update(new Student("1", "IONEL POPESCU", 935));
+        repository.delete("2");
+
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("IONEL POPESCU", reopened.findOne("1").getNume());
+        assertNull(reopened.findOne("2"));
+    }
+
+    @Test
+    public void checkpoint_RewritesFileAndTruncatesLog() {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setCheckpointInterval(2);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        assertEquals(1, repository.log.size());
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        repository.flush();
+        assertEquals(0, repository.log.size());
+
+        new File(STUDENTS_PATH + ".wal").delete();
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNotNull(reopened.findOne("1"));
+        assertNotNull(reopened.findOne("2"));
+    }
+
+    @Test
+    public void checkpoint_LogNotTruncated_ReplayedOverSnapshot() throws IOException {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        repository.update(new Student("1", "IONEL POPESCU", 935));
+        Path wal = Paths.get(STUDENTS_PATH + ".wal");
+        byte[] logBeforeCheckpoint = Files.readAllBytes(wal);
+
+        repository.checkpoint();
+        repository.flush();
+        assertEquals(0, repository.log.size());
+        assertFalse(Files.exists(StoreLock.temporaryFile(Paths.get(STUDENTS_PATH))));
+
+        // crash after the snapshot replaced the XML file, before the log was truncated
+        Files.write(wal, logBeforeCheckpoint);
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("IONEL POPESCU", reopened.findOne("1").getNume());
+        assertNotNull(reopened.findOne("2"));
+    }
+
+    @Test
+    public void staleLog_IsDiscarded() throws IOException, InterruptedException {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+
+        Thread.sleep(10);
+        try (FileWriter fileWriter = new FileWriter(STUDENTS_PATH)) {
+            fileWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati></Entitati>");
+        }
+
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNull(reopened.findOne("1"));
+    }
+
+    @Test
+    public void watched_ChangesOfAnotherProcess_OnlyChangedEntitiesReplaced() throws InterruptedException {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        repository.flush();
+        repository.setWatched(true);
+        Student maria = repository.findOne("2");
+        List<String> changed = new ArrayList<>();
+        repository.addListener((oldEntity, newEntity) -> changed.add((newEntity != null ? newEntity : oldEntity).getID()));
+        changed.clear();
+
+        StudentXMLRepository other = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        other.update(new Student("1", "IONEL POPESCU", 935));
+        other.checkpoint();
+        other.flush();
+
+        awaitName(repository, "1", "IONEL POPESCU");
+        assertEquals(Collections.singletonList("1"), changed);
+        assertSame(maria, repository.findOne("2"));
+        repository.close();
+        assertFalse(repository.isWatched());
+    }
+
+    @Test
+    public void persist_ChangesOfAnotherProcess_ReadBeforeAppending() {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        StudentXMLRepository other = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        repository.flush();
+        assertNotNull(other.findOne("1"));
+
+        assertDoesNotThrow(() -> other.save(new Student("2", "MARIA", 936)));
+        other.update(new Student("1", "IONEL POPESCU", 935));
+        other.flush();
+        assertDoesNotThrow(() -> repository.save(new Student("3", "ANA", 937)));
+        repository.flush();
+
+        assertNotNull(repository.findOne("2"));
+        assertEquals("IONEL POPESCU", repository.findOne("1").getNume());
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals(3, reopened.stream().count());
+    }
+
+    @Test
+    public void close_ChangesWrittenToXmlFile() throws IOException {
+        new File(STUDENTS_PATH).delete();
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        repository.close();
+
+        assertTrue(new String(Files.readAllBytes(Paths.get(STUDENTS_PATH)), StandardCharsets.UTF_8).contains("IONEL"));
+        assertEquals(0, repository.log.size());
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        MetricsRegistry registry = new MetricsRegistry(true);
+        reopened.setMetricsRegistry(registry);
+        assertEquals("IONEL", reopened.findOne("1").getNume());
+        assertEquals(0, registry.counter("StudentXMLRepository.errors").get());
+    }
+
+    @Test
+    public void missingXmlFile_StoreReadFromLog() {
+        new File(STUDENTS_PATH).delete();
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        repository.flush();
+
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("IONEL", reopened.findOne("1").getNume());
+    }
+
+    @Test
+    public void groupCommit_ChangesWrittenOnFlush() {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setFlushPolicy(FlushPolicy.groupCommit(60_000, 100, 0));
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+        assertEquals(0, repository.log.size());
+
+        repository.flush();
+
+        assertEquals(2, repository.log.size());
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNotNull(reopened.findOne("1"));
+        assertNotNull(reopened.findOne("2"));
+    }
+
+    @Test
+    public void groupCommit_ChangesWrittenAfterDelay() throws InterruptedException {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.setFlushPolicy(FlushPolicy.groupCommit(20, 0, 0));
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+
+        Thread.sleep(500);
+
+        assertEquals(1, repository.log.size());
+    }
+
+    @Test
+    public void saveAll_ReportsFailuresAndPersistsValidOnes() {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertDoesNotThrow(() -> repository.save(new Student("1", "IONEL", 935)));
+
+        BulkResult<Student> result = repository.saveAll(Arrays.asList(new Student("1", "DUPLICAT", 935),
+                new Student("2", "MARIA", 936), new Student("3", "", 936), new Student("4", "ION", 937)));
+
+        assertEquals(2, result.getSucceeded().size());
+        assertEquals(2, result.getFailed().size());
+        assertEquals(3, repository.log.size());
+
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertEquals("IONEL", reopened.findOne("1").getNume());
+        assertNotNull(reopened.findOne("2"));
+        assertNull(reopened.findOne("3"));
+        assertNotNull(reopened.findOne("4"));
+    }
+
+    @Test
+    public void deleteAll_MissingIds_Reported() {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        repository.saveAll(Arrays.asList(new Student("1", "IONEL", 935), new Student("2", "MARIA", 936)));
+
+        BulkResult<String> result = repository.deleteAll(Arrays.asList("1", "7", "1"));
+
+        assertEquals(Collections.singletonList("1"), result.getSucceeded());
+        assertEquals(2, result.getFailed().size());
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        assertNull(reopened.findOne("1"));
+        assertNotNull(reopened.findOne("2"));
+    }
+
+    @Test
+    public void open_FileReadOnFirstAccess() throws Exception {
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        StudentXMLRepository prefetched = new StudentXMLRepository(new StudentValidator(), STUDENTS_PATH);
+        try (FileWriter fileWriter = new FileWriter(STUDENTS_PATH)) {
+            fileWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n"
+                    + "<student ID=\"1\"><Nume>IONEL</Nume><Grupa>935</Grupa></student>\n</Entitati>");
+        }
+        assertFalse(new File(STUDENTS_PATH + ".wal").exists());
+
+        prefetched.prefetch().get();
+
+        assertEquals("IONEL", repository.findOne("1").getNume());
+        assertEquals(1, prefetched.entities.size());
+    }
+
+    @Test
+    public void compressed_Checkpoint_WritesGzipFile() throws IOException {
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(COMPRESSED_PATH)))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n"
+                    + "<student ID=\"1\"><Nume>IONEL</Nume><Grupa>935</Grupa></student>\n</Entitati>");
+        }
+        StudentXMLRepository repository = new StudentXMLRepository(new StudentValidator(), COMPRESSED_PATH);
+        assertEquals("IONEL", repository.findOne("1").getNume());
+        assertDoesNotThrow(() -> repository.save(new Student("2", "MARIA", 936)));
+
+        repository.checkpoint();
+        repository.flush();
+
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(COMPRESSED_PATH))) {
+            assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("MARIA"));
+        }
+        StudentXMLRepository reopened = new StudentXMLRepository(new StudentValidator(), COMPRESSED_PATH);
+        assertNotNull(reopened.findOne("1"));
+        assertNotNull(reopened.findOne("2"));
+    }
+}
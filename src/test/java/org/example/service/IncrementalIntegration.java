@@ -60,6 +60,12 @@ public class IncrementalIntegration {
         new File("students.xml").delete();
         new File("assignments.xml").delete();
         new File("grades.xml").delete();
+        new File("students.xml.wal").delete();
+        new File("assignments.xml.wal").delete();
+        new File("grades.xml.wal").delete();
+        new File("students.xml.lock").delete();
+        new File("assignments.xml.lock").delete();
+        new File("grades.xml.lock").delete();
     }
 
     @Before
@@ -0,0 +1,179 @@
+package org.example.service;
+
+import org.example.repository.NotaXMLRepository;
+import org.example.repository.StudentXMLRepository;
+import org.example.repository.TemaXMLRepository;
+import org.example.validation.NotaValidator;
+import org.example.validation.StudentValidator;
+import org.example.validation.TemaValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceReportTest {
+    private static final String[] FILES = {"report_students.xml", "report_assignments.xml", "report_grades.xml"};
+
+    private Service service;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        for (String file : FILES) {
+            new File(file + ".wal").delete();
+            try (FileWriter fileWriter = new FileWriter(file)) {
+                fileWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati>\n</Entitati>");
+            }
+        }
+        service = new Service(new StudentXMLRepository(new StudentValidator(), FILES[0]),
+                new TemaXMLRepository(new TemaValidator(), FILES[1]),
+                new NotaXMLRepository(new NotaValidator(), FILES[2]));
+
+        service.saveStudent("1", "Ana", 221);
+        service.saveStudent("2", "Ana", 222);
+        service.saveStudent("3", "Ion", 223);
+        service.saveTema("1", "Tema 1", 7, 5);
+        service.saveTema("2", "Tema 2", 9, 6);
+        service.saveNota("1", "1", 10, 7, "bine");
+        service.saveNota("1", "2", 9, 9, "ok");
+        service.saveNota("2", "1", 8, 7, "slab");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.close();
+        for (String file : FILES) {
+            new File(file).delete();
+            new File(file + ".wal").delete();
+            new File(file + ".lock").delete();
+        }
+    }
+
+    @Test
+    public void exportAllReports_OneFilePerStudentWithGrades(@TempDir Path outputDir) throws IOException {
+        assertEquals(2, service.exportAllReports(outputDir));
+
+        String report = new String(Files.readAllBytes(outputDir.resolve("1_Ana.txt")), StandardCharsets.UTF_8);
+        assertTrue(report.contains("Tema: 1\nNota: 10.0\nPredata in saptamana: 7\nDeadline: 7\nFeedback: bine\n\n"));
+        assertTrue(report.contains("Tema: 2\nNota: 9.0\nPredata in saptamana: 9\nDeadline: 9\nFeedback: ok\n\n"));
+        assertTrue(Files.exists(outputDir.resolve("2_Ana.txt")));
+        assertFalse(Files.exists(outputDir.resolve("3_Ion.txt")));
+    }
+
+    @Test
+    public void exportAllReports_CollidingNames_AllWritten(@TempDir Path outputDir) throws Exception {
+        service.saveStudent("a/b", "Ana", 224);
+        service.saveStudent("a_b", "Ana", 225);
+        service.saveNota("a/b", "1", 7, 7, "a/b");
+        service.saveNota("a_b", "1", 6, 7, "a_b");
+
+        assertEquals(4, service.exportAllReports(outputDir));
+
+        assertTrue(new String(Files.readAllBytes(outputDir.resolve("a_b_Ana.txt")), StandardCharsets.UTF_8)
+                .contains("Feedback: a/b\n"));
+        assertTrue(new String(Files.readAllBytes(outputDir.resolve("a_b_Ana_2.txt")), StandardCharsets.UTF_8)
+                .contains("Feedback: a_b\n"));
+    }
+
+    @Test
+    public void exportAllReports_Zip_EntriesSortedByName() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, service.exportAllReports(out));
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(List.of("1_Ana.txt", "2_Ana.txt"), names);
+    }
+
+    @Test
+    public void createStudentFile_UsesRepositoriesOfService() throws IOException {
+        try {
+            service.createStudentFile("2", "1");
+
+            String report = new String(Files.readAllBytes(new File("Ana.txt").toPath()), StandardCharsets.UTF_8);
+            assertEquals("Tema: 1\nNota: 8.0\nPredata in saptamana: 7\nDeadline: 7\nFeedback: slab\n\n", report);
+        } finally {
+            new File("Ana.txt").delete();
+        }
+    }
+
+    @Test
+    public void stats_VerifiedAgainstRepositories() {
+        service.setVerifyAggregates(true);
+
+        assertEquals(9.5, service.getStudentStats("1").getAverage());
+        assertEquals(8, service.getTemaStats("1").getMin());
+        assertEquals(8, service.getGrupaStats(222).getAverage());
+        service.updateStudent("2", "Ana", 221);
+        assertEquals(3, service.getGrupaStats(221).getCount());
+        assertTrue(service.verifyAggregates().isEmpty());
+    }
+
+    @Test
+    public void stats_ReopenedStore_QueriedFirst() {
+        service.close();
+        service = new Service(new StudentXMLRepository(new StudentValidator(), FILES[0]),
+                new TemaXMLRepository(new TemaValidator(), FILES[1]),
+                new NotaXMLRepository(new NotaValidator(), FILES[2]));
+
+        assertEquals(2, service.getStudentStats("1").getCount());
+        assertEquals(2, service.getTemaStats("1").getCount());
+        assertEquals(8, service.getGrupaStats(222).getAverage());
+    }
+
+    @Test
+    public void construct_StoreStillLoading_DoesNotWait() throws Exception {
+        service.close();
+        StudentXMLRepository studenti = new StudentXMLRepository(new StudentValidator(), FILES[0]);
+        NotaXMLRepository note = new NotaXMLRepository(new NotaValidator(), FILES[2]);
+
+        // holds the locks of the repositories the way a load in progress does
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        CompletableFuture<Void> loading = CompletableFuture.runAsync(() -> {
+            synchronized (studenti) {
+                synchronized (note) {
+                    locked.countDown();
+                    try {
+                        loaded.await();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        locked.await();
+
+        try {
+            service = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> new Service(studenti, new TemaXMLRepository(new TemaValidator(), FILES[1]), note));
+        } finally {
+            loaded.countDown();
+            loading.join();
+        }
+        assertEquals(2, service.getStudentStats("1").getCount());
+    }
+}
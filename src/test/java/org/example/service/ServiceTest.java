@@ -50,6 +50,12 @@ public class ServiceTest {
         new File("student.xml").delete();
         new File("assignments.xml").delete();
         new File("grades.xml").delete();
+        new File("student.xml.wal").delete();
+        new File("assignments.xml.wal").delete();
+        new File("grades.xml.wal").delete();
+        new File("student.xml.lock").delete();
+        new File("assignments.xml.lock").delete();
+        new File("grades.xml.lock").delete();
     }
 
     @Test